@@ -0,0 +1,59 @@
+package ph.codeia.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import ph.codeia.signal.Channel;
+import ph.codeia.signal.CopyOnWriteChannel;
+import ph.codeia.signal.SimpleChannel;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * Cost of sending a message to N listeners.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChannelBench {
+
+    @Param({"1", "8", "64"})
+    int listeners;
+
+    int sum;
+    Channel<Integer> simple;
+    Channel<Integer> copyOnWrite;
+
+    @Setup
+    public void setup() {
+        simple = new SimpleChannel<>();
+        copyOnWrite = new CopyOnWriteChannel<>();
+        for (int i = 0; i < listeners; i++) {
+            simple.link(n -> sum += n);
+            copyOnWrite.link(n -> sum += n);
+        }
+    }
+
+    @Benchmark
+    public int simple() {
+        simple.send(1);
+        return sum;
+    }
+
+    @Benchmark
+    public int copy_on_write() {
+        copyOnWrite.send(1);
+        return sum;
+    }
+
+}
@@ -0,0 +1,67 @@
+package ph.codeia.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import ph.codeia.values.Either;
+import ph.codeia.values.Wait;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * Latency of passing a value from another thread to a thread blocked in
+ * {@code get()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HandoffBench {
+
+    private static final Integer VALUE = 1;
+
+    ExecutorService producer;
+
+    @Setup
+    public void setup() {
+        producer = Executors.newSingleThreadExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        producer.shutdown();
+    }
+
+    @Benchmark
+    public Integer either_handoff() throws Exception {
+        Either<Exception, Integer> either = new Either<>();
+        producer.execute(() -> either.pass(VALUE));
+        return either.get();
+    }
+
+    @Benchmark
+    public Integer either_completed() throws Exception {
+        Either<Exception, Integer> either = new Either<>();
+        either.pass(VALUE);
+        return either.get();
+    }
+
+    @Benchmark
+    public Integer wait_handoff() {
+        Wait<Integer> wait = new Wait<>();
+        producer.execute(() -> wait.set(VALUE));
+        return wait.get();
+    }
+
+}
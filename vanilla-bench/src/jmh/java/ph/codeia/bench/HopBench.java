@@ -0,0 +1,78 @@
+package ph.codeia.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import ph.codeia.run.ExecutorContext;
+import ph.codeia.run.Interleave;
+import ph.codeia.run.PassThrough;
+import ph.codeia.run.Runner;
+import ph.codeia.values.Do;
+import ph.codeia.values.Wait;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * Round trip latency of a block sent to a worker thread and back.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HopBench {
+
+    private static final Do.Execute<Integer> PRODUCE = next -> next.got(1);
+
+    ExecutorService worker;
+    ExecutorService main;
+    Do.Execute<Integer> context;
+    Do.Execute<Integer> interleave;
+
+    @Setup
+    public void setup() {
+        worker = Executors.newSingleThreadExecutor();
+        main = Executors.newSingleThreadExecutor();
+        context = new ExecutorContext(worker).apply(PRODUCE);
+        Runner hop = new Interleave(new ExecutorContext(worker), new ExecutorContext(main));
+        interleave = hop.apply(PRODUCE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        worker.shutdown();
+        main.shutdown();
+    }
+
+    @Benchmark
+    public Integer pass_through() {
+        return roundTrip(PassThrough.RUNNER.apply(PRODUCE));
+    }
+
+    @Benchmark
+    public Integer executor_context() {
+        return roundTrip(context);
+    }
+
+    @Benchmark
+    public Integer interleave() {
+        return roundTrip(interleave);
+    }
+
+    private static Integer roundTrip(Do.Execute<Integer> block) {
+        Wait<Integer> result = new Wait<>();
+        block.begin(result::set);
+        return result.get();
+    }
+
+}
@@ -0,0 +1,89 @@
+package ph.codeia.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import ph.codeia.arch.sm.AsyncMachine;
+import ph.codeia.arch.sm.MailboxMachine;
+import ph.codeia.arch.sm.Machine;
+import ph.codeia.arch.sm.RootState;
+import ph.codeia.arch.sm.Sm;
+import ph.codeia.values.Wait;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * Throughput of actions applied to a machine from a thread other than its
+ * main thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MachineBench {
+
+    private static final int ACTIONS = 1000;
+
+    interface Action extends Sm.Action<Counter, Action, MachineBench> {}
+
+    static class Counter extends RootState<Counter, Action> {
+        long count = 0;
+    }
+
+    private static final Action INC = (s, c) -> {
+        s.count++;
+        return s;
+    };
+
+    @Param({"async", "mailbox"})
+    String machine;
+
+    ExecutorService main;
+    Machine.Bound<Counter, Action, MachineBench> bound;
+
+    @Setup
+    public void setup() {
+        main = Executors.newSingleThreadExecutor();
+        Machine.Builder<Counter, Action, MachineBench> builder = "async".equals(machine)
+                ? new AsyncMachine.Builder<Counter, Action, MachineBench>(new Counter())
+                        .withExecutor(main)
+                : new MailboxMachine.Builder<Counter, Action, MachineBench>(new Counter())
+                        .withExecutor(main);
+        bound = builder.build(this);
+        bound.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        bound.stop();
+        main.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACTIONS)
+    public long apply() {
+        for (int i = 0; i < ACTIONS; i++) {
+            bound.apply(INC);
+        }
+        Wait<Long> done = new Wait<>();
+        bound.apply((s, c) -> {
+            done.set(s.count);
+            return s;
+        });
+        return done.get();
+    }
+
+}
@@ -0,0 +1,70 @@
+package ph.codeia.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import ph.codeia.run.Seq;
+import ph.codeia.values.Do;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * Cost of running a synchronous sequence of N steps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SeqBench {
+
+    private static final Do.Continue<Integer, Integer> INC = (n, next) -> next.got(n + 1);
+
+    @Param({"1", "10", "100"})
+    int steps;
+
+    int result;
+    Do.Just<Integer> sink;
+    Seq<?, Integer> plain;
+    Seq.Compiled<Integer> compiled;
+    Do.Execute<Integer> trampolined;
+
+    @Setup
+    public void setup() {
+        sink = n -> result = n;
+        Seq<?, Integer> seq = Seq.of(next -> next.got(0));
+        for (int i = 0; i < steps; i++) {
+            seq = seq.pipe(INC);
+        }
+        plain = seq;
+        compiled = seq.compile();
+        trampolined = seq.trampolined();
+    }
+
+    @Benchmark
+    public int plain() {
+        plain.begin(sink);
+        return result;
+    }
+
+    @Benchmark
+    public int compiled() {
+        compiled.begin(sink);
+        return result;
+    }
+
+    @Benchmark
+    public int trampolined() {
+        trampolined.begin(sink);
+        return result;
+    }
+
+}
@@ -0,0 +1,95 @@
+package ph.codeia.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import ph.codeia.run.AsyncMemoize;
+import ph.codeia.run.Memoize;
+import ph.codeia.values.BoundedStore;
+import ph.codeia.values.Do;
+import ph.codeia.values.SimpleStore;
+import ph.codeia.values.Store;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * Hit and miss paths of the stores and the memoizing runners.
+ *
+ * Misses are forced by clearing the key before each lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StoreBench {
+
+    private static final String KEY = "key";
+    private static final Object VALUE = new Object();
+    private static final Do.Make<Object> MAKE = () -> VALUE;
+
+    @Param({"simple", "bounded"})
+    String store;
+
+    Object result;
+    Store cache;
+    Do.Just<Object> sink;
+    Do.Execute<Object> memoized;
+    Do.Execute<Object> asyncMemoized;
+
+    @Setup
+    public void setup() {
+        cache = "simple".equals(store) ? new SimpleStore() : new BoundedStore(1024);
+        sink = value -> result = value;
+        Do.Execute<Object> block = next -> next.got(VALUE);
+        memoized = new Memoize(cache).label(KEY, block);
+        asyncMemoized = new AsyncMemoize(cache).label(KEY, block);
+        cache.put(KEY, VALUE);
+    }
+
+    @Benchmark
+    public Object get_hit() {
+        return cache.get(KEY, null);
+    }
+
+    @Benchmark
+    public Object hard_get_miss() {
+        cache.clear(KEY);
+        return cache.hardGet(KEY, MAKE);
+    }
+
+    @Benchmark
+    public Object memoize_hit() {
+        memoized.begin(sink);
+        return result;
+    }
+
+    @Benchmark
+    public Object memoize_miss() {
+        cache.clear(KEY);
+        memoized.begin(sink);
+        return result;
+    }
+
+    @Benchmark
+    public Object async_memoize_hit() {
+        asyncMemoized.begin(sink);
+        return result;
+    }
+
+    @Benchmark
+    public Object async_memoize_miss() {
+        cache.clear(KEY);
+        asyncMemoized.begin(sink);
+        return result;
+    }
+
+}
@@ -1,38 +1,132 @@
 package ph.codeia.arch.sm;
 
-import ph.codeia.meta.Untested;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This file is a part of the vanilla project.
  */
 
-@Untested
+/**
+ * Counts the async actions in flight.
+ *
+ * The counter is atomic so starting and finishing work never takes a lock.
+ * The monitor is only entered by threads blocked in {@link #await()} and by
+ * the thread that brings the count down to zero while there are such
+ * threads.
+ */
 public class Backlog {
     private final Object lock = new Object();
-    private int inFlight = 0;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile int waiters = 0;
 
     public void started() {
-        synchronized (lock) {
-            inFlight++;
-        }
+        inFlight.incrementAndGet();
     }
 
     public void done() {
-        if (inFlight == 0) {
-            throw new IllegalStateException("No pending work.");
+        while (true) {
+            int n = inFlight.get();
+            if (n == 0) {
+                throw new IllegalStateException("No pending work.");
+            }
+            if (inFlight.compareAndSet(n, n - 1)) {
+                if (n == 1) {
+                    idle();
+                }
+                return;
+            }
         }
+    }
+
+    /**
+     * Blocks the current thread until there's no more pending work.
+     *
+     * @throws InterruptedException when the thread is interrupted while
+     * waiting.
+     * @see #whenIdle(Runnable)
+     */
+    public void await() throws InterruptedException {
         synchronized (lock) {
-            if (--inFlight == 0) {
+            waiters++;
+            try {
+                while (inFlight.get() > 0) {
+                    lock.wait();
+                }
+            } finally {
+                waiters--;
+            }
+        }
+    }
+
+    /**
+     * Runs a block once there's no more pending work.
+     *
+     * The block is called immediately in the current thread if there's
+     * nothing in flight. Otherwise it is called in the thread that completes
+     * the last pending work. If another thread is already running idle
+     * blocks at that moment, that thread runs this one too. Each block is
+     * called exactly once.
+     *
+     * Idle blocks are run one at a time, and the count is checked before
+     * each one. A block that throws does not stop the others; the first
+     * error is rethrown once they are done. If new work is started in the meantime, e.g. by an earlier
+     * idle block, the remaining blocks wait for that work to finish too.
+     * The check and the call are not atomic though: work started by another
+     * thread right after the check may already be in flight when the block
+     * runs. "Idle" means that the count was zero at some point after the
+     * block was queued, not that it is still zero.
+     *
+     * @param block The function to call.
+     */
+    public void whenIdle(Runnable block) {
+        idle.add(block);
+        if (inFlight.get() == 0) {
+            runIdle();
+        }
+    }
+
+    private void idle() {
+        if (waiters > 0) {
+            synchronized (lock) {
                 lock.notifyAll();
             }
         }
+        runIdle();
     }
 
-    public void await() throws InterruptedException {
-        synchronized (lock) {
-            while (inFlight > 0) {
-                lock.wait();
+    private void runIdle() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        Throwable error = null;
+        int missed = 1;
+        do {
+            while (inFlight.get() == 0) {
+                Runnable block = idle.poll();
+                if (block == null) {
+                    break;
+                }
+                try {
+                    block.run();
+                } catch (RuntimeException | Error e) {
+                    if (error == null) {
+                        error = e;
+                    } else {
+                        error.addSuppressed(e);
+                    }
+                }
             }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error != null) {
+            throw (Error) error;
         }
     }
 }
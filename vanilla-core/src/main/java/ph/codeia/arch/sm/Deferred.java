@@ -0,0 +1,95 @@
+package ph.codeia.arch.sm;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.FutureTask;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * A future that is completed from the outside and notifies listeners when
+ * it is done.
+ *
+ * The {@link Machine} does not dispatch these to a worker thread. It adds a
+ * listener that applies the resulting action as soon as the future is
+ * completed, so a pending deferred action does not tie up a thread while it
+ * waits for I/O. Use this to adapt callback-based APIs like
+ * {@code CompletionStage} or {@code ListenableFuture}. {@link Machine#deferred}
+ * and {@link RootState#async(ph.codeia.values.Do.Execute)} create one from
+ * a CPS block.
+ *
+ * {@link #run()} does nothing; the only ways to complete this are
+ * {@link #pass(Object)}, {@link #fail(Throwable)} and {@link #cancel(boolean)}.
+ *
+ * @param <T> The type of the value.
+ */
+@SuppressWarnings("unchecked")
+public class Deferred<T> extends FutureTask<T> {
+
+    private static final Callable NEVER = new Callable() {
+        @Override
+        public Object call() throws Exception {
+            throw new IllegalStateException("Deferred futures cannot be run.");
+        }
+    };
+
+    private final Queue<Runnable> listeners = new ConcurrentLinkedQueue<>();
+
+    public Deferred() {
+        super((Callable<T>) NEVER);
+    }
+
+    @Override
+    public void run() {
+    }
+
+    /**
+     * Completes the future. Does nothing if already completed.
+     *
+     * @param value The value.
+     */
+    public void pass(T value) {
+        set(value);
+    }
+
+    /**
+     * Completes the future with an error. Does nothing if already completed.
+     *
+     * @param error The cause of the {@code ExecutionException} that will be
+     *              thrown by {@link #get()}.
+     */
+    public void fail(Throwable error) {
+        setException(error);
+    }
+
+    /**
+     * Registers a block to call when this future is completed.
+     *
+     * The block is called immediately in the current thread if already
+     * completed, otherwise in the thread that completes this future. Each
+     * listener is called exactly once.
+     *
+     * @param listener The function to call.
+     */
+    public void whenDone(Runnable listener) {
+        listeners.add(listener);
+        if (isDone()) {
+            notifyListeners();
+        }
+    }
+
+    @Override
+    protected void done() {
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        for (Runnable r = listeners.poll(); r != null; r = listeners.poll()) {
+            r.run();
+        }
+    }
+
+}
@@ -2,9 +2,11 @@ package ph.codeia.arch.sm;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
@@ -12,6 +14,10 @@ import java.util.concurrent.FutureTask;
 import java.util.concurrent.RunnableFuture;
 
 import ph.codeia.arch.ErrorHandler;
+import ph.codeia.run.CancelToken;
+import ph.codeia.run.VirtualThreads;
+import ph.codeia.signal.Channel;
+import ph.codeia.values.Do;
 import ph.codeia.meta.Untested;
 
 /**
@@ -39,6 +45,7 @@ implements ErrorHandler<C> {
             C> {
         protected final S state;
         protected ErrorHandler<C> handler;
+        protected Executor worker = IMMEDIATE;
 
         /**
          * @param state The initial state.
@@ -56,6 +63,28 @@ implements ErrorHandler<C> {
             return this;
         }
 
+        /**
+         * @param worker The context where async actions of a machine made by
+         *               {@link #build(Object)} are run. Runs them in the
+         *               current thread by default.
+         * @return the builder.
+         */
+        public Builder<S, A, C> withWorker(Executor worker) {
+            this.worker = worker;
+            return this;
+        }
+
+        /**
+         * Runs every async action of a machine made by {@link #build(Object)}
+         * in its own virtual thread when the JVM supports it.
+         *
+         * @return the builder.
+         * @see VirtualThreads
+         */
+        public Builder<S, A, C> onVirtualThreads() {
+            return withWorker(VirtualThreads.EXECUTOR);
+        }
+
         /**
          * @return a Machine instance.
          */
@@ -66,7 +95,7 @@ implements ErrorHandler<C> {
          * @return a Machine bound to this receiver instance.
          */
         public Bound<S, A, C> build(C client) {
-            return build(IMMEDIATE, client);
+            return build(worker, client);
         }
 
         /**
@@ -135,6 +164,13 @@ implements ErrorHandler<C> {
             machine.stop();
         }
 
+        /**
+         * @see Machine#cancel()
+         */
+        public void cancel() {
+            machine.cancel();
+        }
+
         /**
          * @param action The action to fold.
          * @see #apply(Executor, Object, Sm.Action)
@@ -152,6 +188,23 @@ implements ErrorHandler<C> {
         public void applyNow(A action) {
             machine.apply(IMMEDIATE, client, action);
         }
+
+        /**
+         * @param actions The actions to fold in a single main thread turn.
+         * @see #applyAll(Executor, Object, Iterable)
+         */
+        public void applyAll(Iterable<? extends A> actions) {
+            machine.applyAll(executor, client, actions);
+        }
+
+        /**
+         * @param actions The actions to fold in a single main thread turn.
+         * @see #applyAll(Executor, Object, Iterable)
+         */
+        @SafeVarargs
+        public final void applyBatch(A... actions) {
+            machine.applyAll(executor, client, Arrays.asList(actions));
+        }
     }
 
     public static final Executor IMMEDIATE = new Executor() {
@@ -176,8 +229,37 @@ implements ErrorHandler<C> {
         return new FutureTask<>(producer);
     }
 
+    /**
+     * Starts a CPS computation and wraps it in a future.
+     *
+     * The block is called immediately in the current thread. The future is
+     * completed when the block calls its continuation, or fails if the block
+     * throws before that.
+     *
+     * @param producer A block that eventually sends a value to its
+     *                 continuation.
+     * @param <T> The type of the value.
+     * @return a future that notifies the machine when it's done.
+     * @see Deferred
+     */
+    public static <T> Future<T> deferred(Do.Execute<T> producer) {
+        final Deferred<T> future = new Deferred<>();
+        try {
+            producer.begin(new Do.Just<T>() {
+                @Override
+                public void got(T value) {
+                    future.pass(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.fail(e);
+        }
+        return future;
+    }
+
     protected S state;
     protected boolean isRunning = false;
+    private volatile CancelToken scope = new CancelToken();
 
     /**
      * @param state The initial state.
@@ -200,6 +282,22 @@ implements ErrorHandler<C> {
         isRunning = false;
     }
 
+    /**
+     * Cancels every async action that has been dispatched but not yet
+     * applied.
+     *
+     * Their futures are cancelled and their results are never folded. The
+     * threads running them are interrupted unless the worker is
+     * {@link #IMMEDIATE}, in which case they run to completion. Actions
+     * dispatched after this call are unaffected. Safe to call from any
+     * thread.
+     */
+    public void cancel() {
+        CancelToken current = scope;
+        scope = new CancelToken();
+        current.cancel();
+    }
+
     /**
      * Starts the machine.
      *
@@ -223,28 +321,28 @@ implements ErrorHandler<C> {
     }
 
     /**
-     * Waits for currently running actions to complete, starts the machine and
-     * applies them.
+     * Starts the machine and applies an action when the currently running
+     * actions are completed.
+     *
+     * Nothing blocks while waiting. The action is applied from the thread
+     * that completes the last pending action, or immediately if there is
+     * nothing in flight.
      *
-     * @param worker This must NOT be an immediate executor.
+     * @param worker The context to run async actions in.
      * @param client The receiver object to be passed to actions.
      * @param action The action do when all running actions are completed. A
      *               no-op action is fine ({@code (state, action) -> state}),
      *               unfortunately that cannot be instantiated here because of
      *               the recursive type parameters so you have to pass one.
+     * @see Backlog#whenIdle(Runnable)
      */
     public void start(final Executor worker, C client, final A action) {
         start(client);
         final WeakReference<C> clientRef = new WeakReference<>(client);
-        worker.execute(new Runnable() {
+        state.backlog().whenIdle(new Runnable() {
             @Override
             public void run() {
-                try {
-                    state.backlog().await();
-                    apply(worker, clientRef, action);
-                } catch (InterruptedException e) {
-                    handle(e, clientRef.get());
-                }
+                apply(worker, clientRef, action);
             }
         });
     }
@@ -277,39 +375,156 @@ implements ErrorHandler<C> {
         main(new Runnable() {
             @Override
             public void run() {
-                if (!isRunning) {
-                    state = state.async(now(action));
-                    return;
-                }
-                state = action.fold(state, clientRef.get());
-                List<Future<A>> generation = new ArrayList<>();
-                for (Iterator<Future<A>> it = state.iterator(); it.hasNext(); it.remove()) {
-                    generation.add(it.next());
-                }
-                final Backlog work = state.backlog();
-                for (final Future<A> futureAction : generation) {
-                    work.started();
-                    worker.execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            if (futureAction instanceof RunnableFuture &&
-                                    !futureAction.isDone()) {
-                                ((RunnableFuture) futureAction).run();
-                            }
-                            try {
-                                apply(worker, clientRef, futureAction.get());
-                            } catch (InterruptedException | ExecutionException e) {
-                                handle(e, clientRef.get());
-                            } finally {
-                                work.done();
+                fold(clientRef, action);
+                dispatch(worker, clientRef);
+            }
+        });
+    }
+
+    /**
+     * Folds a sequence of actions in one main thread turn.
+     *
+     * Works like calling {@link #apply(Executor, Object, Sm.Action)} for each
+     * action, except that the future queue is scanned and dispatched only
+     * once after the last action is folded. Useful when actions arrive in
+     * bursts. An action that throws does not stop the rest of the batch; the
+     * futures are still dispatched and the first error is rethrown in the
+     * main thread after that.
+     *
+     * @param worker The context to run async actions in.
+     * @param client The receiver object to be passed to the actions.
+     * @param actions The actions to run in order. This will be traversed in
+     *                the main thread so don't modify it after passing.
+     */
+    public void applyAll(Executor worker, C client, Iterable<? extends A> actions) {
+        applyAll(worker, new WeakReference<>(client), actions);
+    }
+
+    /**
+     * @see #applyAll(Executor, Object, Iterable)
+     */
+    @SafeVarargs
+    public final void applyBatch(Executor worker, C client, A... actions) {
+        applyAll(worker, client, Arrays.asList(actions));
+    }
+
+    /**
+     * @see #applyAll(Executor, Object, Iterable)
+     */
+    protected void applyAll(
+            final Executor worker,
+            final WeakReference<C> clientRef,
+            final Iterable<? extends A> actions) {
+        main(new Runnable() {
+            @Override
+            public void run() {
+                Throwable error = null;
+                try {
+                    for (A action : actions) {
+                        try {
+                            fold(clientRef, action);
+                        } catch (RuntimeException | Error e) {
+                            if (error == null) {
+                                error = e;
+                            } else {
+                                error.addSuppressed(e);
                             }
                         }
-                    });
+                    }
+                } finally {
+                    dispatch(worker, clientRef);
+                }
+                if (error instanceof RuntimeException) {
+                    throw (RuntimeException) error;
+                }
+                if (error != null) {
+                    throw (Error) error;
                 }
             }
         });
     }
 
+    /**
+     * Computes the next state from the action, or enqueues the action when
+     * the machine is stopped.
+     *
+     * Must be called in the main thread.
+     *
+     * @param clientRef The receiver object to be passed to the action.
+     * @param action The action to fold.
+     */
+    protected void fold(WeakReference<C> clientRef, A action) {
+        if (!isRunning) {
+            state = state.async(now(action));
+        } else {
+            state = action.fold(state, clientRef.get());
+        }
+    }
+
+    /**
+     * Takes every future action queued in the current state and runs them
+     * in the worker context.
+     *
+     * {@link Deferred} actions are not sent to the worker. They are applied
+     * from the thread that completes them instead. Actions cancelled by
+     * {@link #cancel()} are dropped.
+     *
+     * Does nothing when the machine is stopped. Must be called in the main
+     * thread.
+     *
+     * @param worker The context to run async actions in.
+     * @param clientRef The receiver object to be passed to the actions.
+     */
+    protected void dispatch(final Executor worker, final WeakReference<C> clientRef) {
+        if (!isRunning) {
+            return;
+        }
+        List<Future<A>> generation = new ArrayList<>();
+        for (Iterator<Future<A>> it = state.iterator(); it.hasNext(); it.remove()) {
+            generation.add(it.next());
+        }
+        final Backlog work = state.backlog();
+        CancelToken token = scope;
+        // an immediate worker runs the future in the calling thread, which
+        // must not be left with its interrupt flag set
+        final boolean mayInterrupt = worker != IMMEDIATE;
+        for (final Future<A> futureAction : generation) {
+            work.started();
+            final Channel.Link cancellation = token.onCancel(new Runnable() {
+                @Override
+                public void run() {
+                    futureAction.cancel(mayInterrupt);
+                }
+            });
+            Runnable block = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (futureAction instanceof RunnableFuture &&
+                                !futureAction.isDone()) {
+                            ((RunnableFuture) futureAction).run();
+                        }
+                        if (!futureAction.isCancelled()) {
+                            apply(worker, clientRef, futureAction.get());
+                        }
+                    } catch (CancellationException ignored) {
+                        // raced with cancel(), drop it like the check above does
+                    } catch (InterruptedException | ExecutionException e) {
+                        handle(e, clientRef.get());
+                    } finally {
+                        cancellation.unlink();
+                        work.done();
+                    }
+                }
+            };
+            if (futureAction instanceof Deferred) {
+                ((Deferred<A>) futureAction).whenDone(block);
+            } else {
+                worker.execute(block);
+            }
+        }
+    }
+
     /**
      * Executes the action in the main thread of the platform.
      *
@@ -0,0 +1,370 @@
+package ph.codeia.arch.sm;
+
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import ph.codeia.arch.ErrorHandler;
+import ph.codeia.arch.LogLevel;
+import ph.codeia.arch.Logger;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * A {@link Machine} that collects applied actions in a lock-free mailbox and
+ * folds them in batches.
+ *
+ * {@link AsyncMachine} submits a new runnable to the main executor for every
+ * action. This one submits a single drain task when the mailbox goes from
+ * empty to non-empty. The drain task folds up to {@code batchSize} actions
+ * per turn and dispatches the resulting future actions once per run of
+ * actions that share the same worker and receiver, so that a burst of actions
+ * from many threads costs a handful of main thread hops instead of one each.
+ *
+ * The mailbox is a bounded ring buffer. Producers in other threads spin when
+ * the ring is full until the main thread catches up. The main thread itself
+ * never waits; when the ring is full, its actions spill over to an unbounded
+ * queue that is folded after the ring is emptied. Until the first drain task
+ * has run, the machine does not know which thread is the main thread, so
+ * every producer spills over instead of spinning. Once anything is in the
+ * spill queue, every later action goes there too until it is emptied, so
+ * actions from the same thread are always folded in order.
+ *
+ * @param <S> The state type.
+ * @param <A> The action type.
+ * @param <C> The receiver type.
+ */
+public class MailboxMachine<
+        S extends Sm.State<S, A>,
+        A extends Sm.Action<S, A, C>,
+        C>
+extends Machine<S, A, C> {
+
+    /**
+     * Provides a single thread executor, a 1024-slot mailbox and a batch
+     * size of 64 by default.
+     *
+     * @param <S> The state type.
+     * @param <A> The action type.
+     * @param <C> The receiver type.
+     */
+    public static class Builder<
+            S extends Sm.State<S, A>,
+            A extends Sm.Action<S, A, C>,
+            C>
+    extends Machine.Builder<S, A, C> {
+
+        private Executor mainExecutor;
+        private int capacity = 1024;
+        private int batchSize = 64;
+
+        public Builder(S state) {
+            super(state);
+        }
+
+        /**
+         * Sets the main executor of the machine.
+         *
+         * @param mainExecutor This must be a single thread executor.
+         * @return the same instance.
+         * @see Executors#newSingleThreadExecutor()
+         */
+        public Builder<S, A, C> withExecutor(Executor mainExecutor) {
+            this.mainExecutor = mainExecutor;
+            return this;
+        }
+
+        /**
+         * @param capacity The number of slots in the mailbox. Will be rounded
+         *                 up to a power of 2.
+         * @return the same instance.
+         */
+        public Builder<S, A, C> withCapacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * @param batchSize The max number of actions folded before the drain
+         *                  task yields the main thread.
+         * @return the same instance.
+         */
+        public Builder<S, A, C> withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        @Override
+        public Machine<S, A, C> build() {
+            return new MailboxMachine<>(
+                    mainExecutor != null
+                            ? mainExecutor
+                            : Executors.newSingleThreadExecutor(),
+                    state, handler, capacity, batchSize);
+        }
+    }
+
+    /**
+     * Bounded multi-producer single-consumer ring.
+     *
+     * Each slot has a sequence number that tells the producers and the
+     * consumer whose turn it is to use the slot. The three parts of an entry
+     * are kept in parallel arrays so that nothing is allocated per message.
+     */
+    private static final class Mailbox<C, A> {
+        private final AtomicLongArray sequence;
+        private final Object[] workers;
+        private final Object[] clients;
+        private final Object[] actions;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private long head = 0;
+
+        Mailbox(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+            mask = size - 1;
+            sequence = new AtomicLongArray(size);
+            workers = new Object[size];
+            clients = new Object[size];
+            actions = new Object[size];
+            for (int i = 0; i < size; i++) {
+                sequence.set(i, i);
+            }
+        }
+
+        boolean offer(Executor worker, WeakReference<C> clientRef, A action) {
+            while (true) {
+                long t = tail.get();
+                int i = (int) t & mask;
+                long diff = sequence.get(i) - t;
+                if (diff < 0) {
+                    return false;
+                }
+                if (diff == 0 && tail.compareAndSet(t, t + 1)) {
+                    workers[i] = worker;
+                    clients[i] = clientRef;
+                    actions[i] = action;
+                    sequence.lazySet(i, t + 1);
+                    return true;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return sequence.get((int) head & mask) != head + 1;
+        }
+
+        Executor worker() {
+            return (Executor) workers[(int) head & mask];
+        }
+
+        @SuppressWarnings("unchecked")
+        WeakReference<C> client() {
+            return (WeakReference<C>) clients[(int) head & mask];
+        }
+
+        @SuppressWarnings("unchecked")
+        A action() {
+            return (A) actions[(int) head & mask];
+        }
+
+        void remove() {
+            int i = (int) head & mask;
+            workers[i] = null;
+            clients[i] = null;
+            actions[i] = null;
+            sequence.lazySet(i, head + mask + 1);
+            head++;
+        }
+    }
+
+    private static final class Entry<C, A> {
+        final Executor worker;
+        final WeakReference<C> clientRef;
+        final A action;
+
+        Entry(Executor worker, WeakReference<C> clientRef, A action) {
+            this.worker = worker;
+            this.clientRef = clientRef;
+            this.action = action;
+        }
+    }
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            Thread current = Thread.currentThread();
+            if (mainThread != current) {
+                mainThread = current;
+            }
+            drain();
+        }
+    };
+
+    private final Executor mainExecutor;
+    private final ErrorHandler<C> handler;
+    private final Mailbox<C, A> mailbox;
+    private final Queue<Entry<C, A>> spill = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final int batchSize;
+    private volatile Thread mainThread;
+
+    /**
+     * @param mainExecutor This must be a single thread executor.
+     * @param state The initial state.
+     * @param handler The error handler; may be null.
+     * @param capacity The number of slots in the mailbox.
+     * @param batchSize The max number of actions folded per main thread turn.
+     * @see Executors#newSingleThreadExecutor()
+     */
+    public MailboxMachine(
+            Executor mainExecutor,
+            S state,
+            ErrorHandler<C> handler,
+            int capacity,
+            int batchSize) {
+        super(state);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.mainExecutor = mainExecutor;
+        this.handler = handler;
+        this.mailbox = new Mailbox<>(capacity);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param mainExecutor This must be a single thread executor.
+     * @param state The initial state.
+     * @param handler The error handler; may be null.
+     */
+    public MailboxMachine(Executor mainExecutor, S state, ErrorHandler<C> handler) {
+        this(mainExecutor, state, handler, 1024, 64);
+    }
+
+    @Override
+    public void handle(final Throwable error, C client) {
+        if (handler != null) {
+            handler.handle(error, client);
+        } else if (client != null && client instanceof Logger) {
+            LogLevel.E.to((Logger) client, error);
+        } else {
+            main(new Runnable() {
+                @Override
+                public void run() {
+                    throw new RuntimeException(error);
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void apply(Executor worker, WeakReference<C> clientRef, A action) {
+        post(worker, clientRef, action);
+        signal();
+    }
+
+    @Override
+    protected void applyAll(
+            Executor worker,
+            WeakReference<C> clientRef,
+            Iterable<? extends A> actions) {
+        for (A action : actions) {
+            post(worker, clientRef, action);
+        }
+        signal();
+    }
+
+    @Override
+    protected void main(Runnable block) {
+        mainExecutor.execute(block);
+    }
+
+    private void post(Executor worker, WeakReference<C> clientRef, A action) {
+        if (spill.isEmpty()) {
+            while (!mailbox.offer(worker, clientRef, action)) {
+                if (!mayWait()) {
+                    spill.add(new Entry<>(worker, clientRef, action));
+                    return;
+                }
+                Thread.yield();
+            }
+        } else {
+            spill.add(new Entry<>(worker, clientRef, action));
+        }
+    }
+
+    /**
+     * @return true if the current thread is known not to be the one that
+     * drains the mailbox.
+     */
+    private boolean mayWait() {
+        Thread main = mainThread;
+        return main != null && main != Thread.currentThread() && main.isAlive();
+    }
+
+    private void signal() {
+        if (pending.getAndIncrement() == 0) {
+            main(drain);
+        }
+    }
+
+    private void drain() {
+        int missed = pending.get();
+        while (true) {
+            int folded = 0;
+            Executor worker = null;
+            WeakReference<C> clientRef = null;
+            for (; folded < batchSize; folded++) {
+                Executor nextWorker;
+                WeakReference<C> nextClient;
+                A action;
+                if (!mailbox.isEmpty()) {
+                    nextWorker = mailbox.worker();
+                    nextClient = mailbox.client();
+                    action = mailbox.action();
+                    mailbox.remove();
+                } else if (!spill.isEmpty()) {
+                    Entry<C, A> e = spill.poll();
+                    nextWorker = e.worker;
+                    nextClient = e.clientRef;
+                    action = e.action;
+                } else {
+                    break;
+                }
+                if (clientRef != null && (worker != nextWorker || clientRef != nextClient)) {
+                    dispatch(worker, clientRef);
+                }
+                worker = nextWorker;
+                clientRef = nextClient;
+                try {
+                    fold(clientRef, action);
+                } catch (RuntimeException | Error e) {
+                    // the rest of the mailbox is still pending; drain it in
+                    // a new turn, as if this batch were full
+                    main(drain);
+                    dispatch(worker, clientRef);
+                    throw e;
+                }
+            }
+            if (clientRef != null) {
+                dispatch(worker, clientRef);
+            }
+            if (folded == batchSize) {
+                main(drain);
+                return;
+            }
+            missed = pending.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+}
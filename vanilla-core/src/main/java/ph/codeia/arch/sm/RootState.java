@@ -7,6 +7,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 
 import ph.codeia.meta.Untested;
+import ph.codeia.values.Do;
 
 /**
  * This file is a part of the vanilla project.
@@ -42,6 +43,23 @@ implements Sm.State<S, A> {
         return async(Machine.future(action));
     }
 
+    /**
+     * Enqueues an action that is produced by a callback.
+     *
+     * The block is started immediately. The machine applies the action when
+     * the block calls its continuation without blocking any thread while
+     * waiting, so this is the one to use for I/O. Callback futures can be
+     * adapted with this, e.g. {@code async(next -> stage.thenAccept(next::got))}.
+     *
+     * @param action A block that eventually sends an action to its
+     *               continuation.
+     * @return the same instance.
+     * @see Machine#deferred(Do.Execute)
+     */
+    public S async(Do.Execute<A> action) {
+        return async(Machine.deferred(action));
+    }
+
     public S plus(A action) {
         return async(Machine.now(action));
     }
@@ -7,7 +7,6 @@ import java.util.concurrent.Future;
 import java.util.concurrent.RunnableFuture;
 
 import ph.codeia.arch.ErrorHandler;
-import ph.codeia.meta.Untested;
 
 /**
  * This file is a part of the vanilla project.
@@ -23,7 +22,6 @@ import ph.codeia.meta.Untested;
  * @param <A> The action type.
  * @param <C> The receiver type.
  */
-@Untested
 public class Stepper<
         S extends Sm.State<S, A>,
         A extends Sm.Action<S, A, C>,
@@ -46,6 +44,13 @@ extends Machine<S, A, C> {
         apply(client, action);
     }
 
+    @Override
+    public void applyAll(Executor worker, C client, Iterable<? extends A> actions) {
+        for (A action : actions) {
+            apply(client, action);
+        }
+    }
+
     @Override
     public void handle(Throwable error, C client) {
         if (errorHandler != null) {
@@ -73,18 +78,30 @@ extends Machine<S, A, C> {
     /**
      * Takes one future action and calls {@code #apply(C, A)} with it.
      *
+     * {@link Deferred} actions that are not yet completed are skipped and
+     * left in the queue, since running them does nothing and waiting for them
+     * would block forever if they are meant to be completed by the test
+     * itself. Complete them, then step again.
+     *
      * @param client The output channel.
-     * @return false if the future queue is empty; true otherwise.
+     * @return false if the future queue is empty or only has pending deferred
+     * actions; true otherwise.
      */
     public boolean step(C client) {
-        Iterator<Future<A>> it = state.iterator();
-        if (!it.hasNext()) {
+        Future<A> future = null;
+        for (Iterator<Future<A>> it = state.iterator(); it.hasNext();) {
+            Future<A> next = it.next();
+            if (!(next instanceof Deferred) || next.isDone()) {
+                it.remove();
+                future = next;
+                break;
+            }
+        }
+        if (future == null) {
             return false;
         }
         try {
-            Future<A> future = it.next();
-            it.remove();
-            if (future instanceof RunnableFuture) {
+            if (future instanceof RunnableFuture && !future.isDone()) {
                 ((RunnableFuture) future).run();
             }
             apply(client, future.get());
@@ -96,7 +113,8 @@ extends Machine<S, A, C> {
     }
 
     /**
-     * Folds all queued future actions into state.
+     * Folds all queued future actions into state, except the pending
+     * {@link Deferred} actions.
      *
      * @param client The output channel.
      */
@@ -0,0 +1,61 @@
+package ph.codeia.run;
+
+import java.util.concurrent.Executor;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * An {@link ExecutorContext} that skips the executor when the current thread
+ * is already running one of its tasks.
+ *
+ * Every task submitted through this context marks the thread it runs in for
+ * as long as it runs. A block started while the mark is set is run right
+ * away in the same thread instead of being submitted again, so consecutive
+ * steps of a pipeline that target the same context do not bounce through the
+ * executor's queue. This is how {@code AndroidRunner.UI} treats the main
+ * looper, generalized to any executor.
+ *
+ * An inlined block runs before any task that is still waiting in the queue.
+ * Use a plain {@link ExecutorContext} if the blocks must run in submission
+ * order. A long chain of synchronous inlined steps also nests on the stack
+ * like {@link PassThrough} does.
+ */
+public class AffineContext extends ExecutorContext {
+
+    private static final ThreadLocal<Executor> CURRENT = new ThreadLocal<>();
+
+    private static class Affine implements Executor {
+        final Executor delegate;
+
+        Affine(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(final Runnable block) {
+            if (CURRENT.get() == this) {
+                block.run();
+                return;
+            }
+            delegate.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Executor outer = CURRENT.get();
+                    CURRENT.set(Affine.this);
+                    try {
+                        block.run();
+                    } finally {
+                        CURRENT.set(outer);
+                    }
+                }
+            });
+        }
+    }
+
+    public AffineContext(Executor context) {
+        super(new Affine(context));
+    }
+
+}
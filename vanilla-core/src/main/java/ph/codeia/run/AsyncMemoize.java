@@ -0,0 +1,207 @@
+package ph.codeia.run;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ph.codeia.values.Do;
+import ph.codeia.values.Store;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * Stores the values produced by a block in a {@link Store} without blocking.
+ *
+ * {@link Memoize} waits for the block to call back so that it can pass the
+ * value to {@link Store#hardGet(String, Do.Make)}, which parks the calling
+ * thread when the block is async. This one remembers the pending
+ * computation instead. Callers that arrive while the block is running are
+ * added to a list of continuations that are called along with the first
+ * caller's continuation in the thread where the block calls back. The value
+ * is saved to the store before that, so later callers get it directly.
+ *
+ * Like {@link Memoize}, blocks passed to the label methods are called at
+ * most once per key as long as the store keeps the value. Only the first
+ * value sent by a block is kept. If a block throws before calling back, the
+ * exception is rethrown to the caller that ran it, and the callers waiting on
+ * it are not dropped: the first of them runs its own block again in the same
+ * thread and the rest wait for that one.
+ */
+@SuppressWarnings("unchecked")
+public class AsyncMemoize implements LabelledRunner {
+
+    private static final Object ABSENT = new Object();
+
+    private static final class Waiter {
+        final Do.Just next;
+        final Do.Execute block;
+
+        Waiter(Do.Just next, Do.Execute block) {
+            this.next = next;
+            this.block = block;
+        }
+    }
+
+    private static final class Pending extends AtomicBoolean {
+        private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+        private volatile boolean done = false;
+        private volatile boolean abandoned = false;
+        private Object value;
+
+        /**
+         * @return false if the computation was abandoned, in which case the
+         * caller must run its block itself.
+         */
+        boolean await(Waiter waiter) {
+            waiters.add(waiter);
+            if (done) {
+                flush();
+            } else if (abandoned && waiters.remove(waiter)) {
+                return false;
+            }
+            return true;
+        }
+
+        boolean claim() {
+            return compareAndSet(false, true);
+        }
+
+        void publish(Object value) {
+            this.value = value;
+            done = true;
+            flush();
+        }
+
+        /**
+         * Must be called after a successful {@link #claim()}.
+         *
+         * @return the callers that were waiting.
+         */
+        List<Waiter> abandon() {
+            abandoned = true;
+            List<Waiter> orphans = new ArrayList<>();
+            for (Waiter w = waiters.poll(); w != null; w = waiters.poll()) {
+                orphans.add(w);
+            }
+            return orphans;
+        }
+
+        private void flush() {
+            for (Waiter w = waiters.poll(); w != null; w = waiters.poll()) {
+                w.next.got(value);
+            }
+        }
+    }
+
+    private final Runner delegate;
+    private final Store store;
+    private final ConcurrentMap<String, Pending> inFlight = new ConcurrentHashMap<>();
+
+    public AsyncMemoize(Runner delegate, Store store) {
+        this.delegate = delegate;
+        this.store = store;
+    }
+
+    public AsyncMemoize(Store store) {
+        this(PassThrough.RUNNER, store);
+    }
+
+    @Override
+    public <T> Do.Execute<T> apply(Do.Execute<T> block) {
+        return delegate.apply(block);
+    }
+
+    @Override
+    public <T, U> Do.Continue<T, U> apply(Do.Continue<T, U> block) {
+        return delegate.apply(block);
+    }
+
+    @Override
+    public <T> Do.Just<T> run(Do.Just<T> block) {
+        return delegate.run(block);
+    }
+
+    @Override
+    public <T> Do.Execute<T> label(final String key, final Do.Execute<T> block) {
+        return delegate.apply(new Do.Execute<T>() {
+            @Override
+            public void begin(Do.Just<T> next) {
+                memo(key, next, block);
+            }
+        });
+    }
+
+    @Override
+    public <T, U> Do.Continue<T, U> label(final String key, final Do.Continue<T, U> block) {
+        return delegate.apply(new Do.Continue<T, U>() {
+            @Override
+            public void then(final T value, Do.Just<U> next) {
+                memo(key, next, new Do.Execute<U>() {
+                    @Override
+                    public void begin(Do.Just<U> next) {
+                        block.then(value, next);
+                    }
+                });
+            }
+        });
+    }
+
+    private <T> void memo(final String key, Do.Just<T> next, Do.Execute<T> block) {
+        Object value = store.get(key, ABSENT);
+        if (value != ABSENT) {
+            next.got((T) value);
+            return;
+        }
+        final Pending pending = new Pending();
+        Pending current = inFlight.putIfAbsent(key, pending);
+        if (current != null) {
+            if (!current.await(new Waiter(next, block))) {
+                memo(key, next, block);
+            }
+            return;
+        }
+        Waiter self = new Waiter(next, block);
+        pending.await(self);
+        value = store.get(key, ABSENT);
+        if (value != ABSENT) {
+            pending.claim();
+            inFlight.remove(key, pending);
+            pending.publish(value);
+            return;
+        }
+        try {
+            block.begin(new Do.Just<T>() {
+                @Override
+                public void got(T value) {
+                    if (pending.claim()) {
+                        store.put(key, value);
+                        inFlight.remove(key, pending);
+                        pending.publish(value);
+                    }
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, pending);
+            if (pending.claim()) {
+                for (Waiter w : pending.abandon()) {
+                    if (w == self) {
+                        continue;
+                    }
+                    try {
+                        memo(key, w.next, w.block);
+                    } catch (RuntimeException | Error again) {
+                        e.addSuppressed(again);
+                    }
+                }
+            }
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package ph.codeia.run;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ph.codeia.signal.Channel;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * A flag that tells running computations that their result is no longer
+ * needed.
+ *
+ * Cancelling does not interrupt anything by itself. Code that can stop
+ * early checks {@link #isCancelled()} at convenient points, or registers a
+ * callback with {@link #onCancel(Runnable)} to close a socket, cancel a
+ * future, etc. {@link Seq#begin(CancelToken, ph.codeia.values.Do.Just)} checks
+ * before every step and {@link ExecutorContext} checks before running a
+ * submitted block.
+ *
+ * Tokens form a tree. Cancelling a token also cancels every token made by
+ * its {@link #child()} method, but not the other way around.
+ *
+ * Registering and unlinking a callback take constant time, so a long-lived
+ * token can guard any number of short computations. Callbacks are not run in
+ * any particular order.
+ */
+public class CancelToken {
+
+    /**
+     * A token that is never cancelled. {@link #cancel()} does nothing.
+     */
+    public static final CancelToken NONE = new CancelToken() {
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public Channel.Link onCancel(Runnable callback) {
+            return NOOP;
+        }
+    };
+
+    private static final Channel.Link NOOP = new Channel.Link() {
+        @Override
+        public void unlink() {
+        }
+    };
+
+    /**
+     * Wraps each registration so that the same block can be registered more
+     * than once and each one is removed by identity.
+     */
+    private static final class Callback {
+        final Runnable block;
+
+        Callback(Runnable block) {
+            this.block = block;
+        }
+    }
+
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final Set<Callback> callbacks =
+            Collections.newSetFromMap(new ConcurrentHashMap<Callback, Boolean>());
+    private volatile Channel.Link parent;
+
+    /**
+     * @return true if {@link #cancel()} has been called on this token or any
+     * of its ancestors.
+     */
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Cancels this token and its children and runs the cancel callbacks in
+     * the current thread. Does nothing if already cancelled.
+     */
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true)) {
+            return;
+        }
+        detach();
+        runCallbacks();
+    }
+
+    /**
+     * Registers a block to call when this token is cancelled.
+     *
+     * The block is called immediately in the current thread if already
+     * cancelled, otherwise in the thread that cancels this. It is called at
+     * most once.
+     *
+     * @param callback The function to call.
+     * @return Unlink this when the callback is no longer needed, e.g. after
+     *         the computation it would stop has completed.
+     */
+    public Channel.Link onCancel(Runnable callback) {
+        final Callback c = new Callback(callback);
+        callbacks.add(c);
+        if (isCancelled()) {
+            runCallbacks();
+        }
+        return new Channel.Link() {
+            @Override
+            public void unlink() {
+                callbacks.remove(c);
+            }
+        };
+    }
+
+    /**
+     * @return a new token that is cancelled when this one is. Cancelling the
+     * child does not affect this token. Call {@link #detach()} on the child
+     * if it outlives its computation without being cancelled, otherwise it
+     * stays registered in this token.
+     */
+    public CancelToken child() {
+        final CancelToken child = new CancelToken();
+        child.parent = onCancel(new Runnable() {
+            @Override
+            public void run() {
+                child.cancel();
+            }
+        });
+        return child;
+    }
+
+    /**
+     * Stops following the parent of a token made by {@link #child()}.
+     *
+     * Call this when the computation guarded by the child is done, so that
+     * the parent does not keep it alive. The child can still be cancelled
+     * directly. Does nothing on a token that has no parent.
+     */
+    public void detach() {
+        Channel.Link p = parent;
+        if (p != null) {
+            parent = null;
+            p.unlink();
+        }
+    }
+
+    private void runCallbacks() {
+        for (Callback c : callbacks) {
+            if (callbacks.remove(c)) {
+                c.block.run();
+            }
+        }
+    }
+
+}
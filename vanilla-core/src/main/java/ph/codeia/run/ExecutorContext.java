@@ -14,9 +14,21 @@ import ph.codeia.values.Do;
 public class ExecutorContext implements Runner {
 
     private final Executor context;
+    private final CancelToken token;
 
-    public ExecutorContext(Executor context) {
+    /**
+     * @param context Where the blocks are run.
+     * @param token Blocks that have not started running when this token is
+     *              cancelled are skipped. Their continuations are never
+     *              called.
+     */
+    public ExecutorContext(Executor context, CancelToken token) {
         this.context = context;
+        this.token = token;
+    }
+
+    public ExecutorContext(Executor context) {
+        this(context, CancelToken.NONE);
     }
 
     @Override
@@ -27,6 +39,9 @@ public class ExecutorContext implements Runner {
                 context.execute(new Runnable() {
                     @Override
                     public void run() {
+                        if (token.isCancelled()) {
+                            return;
+                        }
                         block.begin(next);
                     }
                 });
@@ -42,6 +57,9 @@ public class ExecutorContext implements Runner {
                 context.execute(new Runnable() {
                     @Override
                     public void run() {
+                        if (token.isCancelled()) {
+                            return;
+                        }
                         block.then(value, next);
                     }
                 });
@@ -57,6 +75,9 @@ public class ExecutorContext implements Runner {
                 context.execute(new Runnable() {
                     @Override
                     public void run() {
+                        if (token.isCancelled()) {
+                            return;
+                        }
                         block.got(value);
                     }
                 });
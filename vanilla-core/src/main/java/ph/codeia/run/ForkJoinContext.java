@@ -0,0 +1,81 @@
+package ph.codeia.run;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * Runs blocks in a {@link ForkJoinPool}, inline when possible.
+ *
+ * A block started from outside the pool is submitted to the pool. A block
+ * started from one of the pool's own workers, e.g. the next step of a
+ * {@link Seq} whose previous step called back synchronously, is run right
+ * away in the same thread so it sees the same warm caches and never touches
+ * a queue. Once that nesting reaches a max depth, the next block is forked
+ * onto the worker's local deque instead, which keeps the stack bounded and
+ * lets idle workers steal it.
+ *
+ * Best for CPU-bound pipelines. Blocks that wait on I/O or locks should run
+ * somewhere else, otherwise they tie up a worker of the pool.
+ */
+public class ForkJoinContext extends ExecutorContext {
+
+    private static final int DEFAULT_MAX_DEPTH = 32;
+
+    private static final ThreadLocal<int[]> DEPTH = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private static class Inline implements Executor {
+        final ForkJoinPool pool;
+        final int maxDepth;
+
+        Inline(ForkJoinPool pool, int maxDepth) {
+            this.pool = pool;
+            this.maxDepth = maxDepth;
+        }
+
+        @Override
+        public void execute(Runnable block) {
+            Thread t = Thread.currentThread();
+            if (!(t instanceof ForkJoinWorkerThread)
+                    || ((ForkJoinWorkerThread) t).getPool() != pool) {
+                pool.execute(block);
+                return;
+            }
+            int[] depth = DEPTH.get();
+            if (depth[0] >= maxDepth) {
+                ForkJoinTask.adapt(block).fork();
+                return;
+            }
+            depth[0]++;
+            try {
+                block.run();
+            } finally {
+                depth[0]--;
+            }
+        }
+    }
+
+    /**
+     * @param pool Where the blocks are run.
+     * @param maxDepth The max number of blocks nested in a single worker
+     *                 thread before the rest are forked.
+     */
+    public ForkJoinContext(ForkJoinPool pool, int maxDepth) {
+        super(new Inline(pool, maxDepth));
+    }
+
+    public ForkJoinContext(ForkJoinPool pool) {
+        this(pool, DEFAULT_MAX_DEPTH);
+    }
+
+}
@@ -1,5 +1,7 @@
 package ph.codeia.run;
 
+import java.util.concurrent.Executor;
+
 import ph.codeia.values.Do;
 
 /**
@@ -13,6 +15,19 @@ import ph.codeia.values.Do;
  */
 public class Interleave implements Runner {
 
+    /**
+     * Creates an interleaving runner that does not resubmit a block to a
+     * context that the current thread is already running.
+     *
+     * @param worker Where the producers are run.
+     * @param main Where the consumers are run.
+     * @return a new runner.
+     * @see AffineContext
+     */
+    public static Interleave affine(Executor worker, Executor main) {
+        return new Interleave(new AffineContext(worker), new AffineContext(main));
+    }
+
     private final Runner worker;
     private final Runner main;
 
@@ -13,7 +13,9 @@ import ph.codeia.values.Wait;
  *
  * Blocks passed to {@link #label(String, Do.Continue)} and
  * {@link #label(String, Do.Execute)} may be executed at most once. They will
- * never be called if the key exists in the backing store.
+ * never be called if the key exists in the backing store. Wrap the store in
+ * a {@link ph.codeia.values.SingleFlight} to ensure that concurrent misses on
+ * the same key run the block only once.
  */
 public class Memoize implements LabelledRunner {
 
@@ -1,6 +1,23 @@
 package ph.codeia.run;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import ph.codeia.values.Do;
+import ph.codeia.values.Either;
 
 /**
  * This file is a part of the vanilla project.
@@ -28,6 +45,209 @@ public class Seq<T, U> implements Do.Execute<U> {
         public void got(Object ignored) {}
     };
 
+    /**
+     * The first step of a sequence started by {@link #of(Do.Execute)}.
+     *
+     * Named so that {@link #compile()} can unwrap it.
+     */
+    private static final class Head<T> implements Do.Continue<Void, T> {
+        final Do.Execute<T> block;
+
+        Head(Do.Execute<T> block) {
+            this.block = block;
+        }
+
+        @Override
+        public void then(Void ignored, Do.Just<T> next) {
+            block.begin(next);
+        }
+    }
+
+    /**
+     * A sequence flattened into an array of steps.
+     *
+     * Running this allocates a single object that serves as the continuation
+     * of every step. Steps that call their continuation synchronously do not
+     * grow the stack; the value is handed back to a loop that runs the next
+     * step. Steps that call back from another thread continue the loop in
+     * that thread.
+     *
+     * Unlike {@link Seq#begin(Do.Just)}, every step must call its
+     * continuation at most once. Steps that branch or call back repeatedly
+     * should not be compiled.
+     *
+     * @param <T> The type of the value produced by the last step.
+     */
+    public static final class Compiled<T> implements Do.Execute<T> {
+        private final Do.Execute head;
+        private final Do.Continue[] steps;
+
+        private Compiled(Do.Execute head, Do.Continue[] steps) {
+            this.head = head;
+            this.steps = steps;
+        }
+
+        /**
+         * Executes the computation.
+         *
+         * @param next The last step in the computation.
+         */
+        @Override
+        public void begin(Do.Just<T> next) {
+            new Run(head, steps, next).start();
+        }
+
+        /**
+         * Executes the computation and ignores the final value produced.
+         */
+        public void begin() {
+            begin(NOOP);
+        }
+    }
+
+    /**
+     * Runs every step through the {@link Trampoline}.
+     */
+    private static final class Bounce<T> implements Do.Execute<T> {
+        private final Do.Execute head;
+        private final Do.Continue[] steps;
+
+        Bounce(Do.Execute head, Do.Continue[] steps) {
+            this.head = head;
+            this.steps = steps;
+        }
+
+        @Override
+        public void begin(Do.Just<T> next) {
+            Do.Just k = Trampoline.RUNNER.run(next);
+            for (int i = steps.length - 1; i >= 0; i--) {
+                final Do.Continue step = steps[i];
+                final Do.Just after = k;
+                k = Trampoline.RUNNER.run(new Do.Just() {
+                    @Override
+                    public void got(Object value) {
+                        step.then(value, after);
+                    }
+                });
+            }
+            Trampoline.RUNNER.apply(head).begin(k);
+        }
+    }
+
+    /**
+     * The state of a single execution of a compiled sequence.
+     *
+     * The counter holds the number of values waiting to be sent to the next
+     * step plus one while a thread is running the loop. Only the thread that
+     * brings it up from zero runs the loop, so the steps are never run
+     * concurrently even when they call back from different threads.
+     */
+    private static final class Run extends AtomicInteger implements Do.Just {
+        private final Do.Execute head;
+        private final Do.Continue[] steps;
+        private final Do.Just sink;
+        private int index = 0;
+        private Object value;
+
+        Run(Do.Execute head, Do.Continue[] steps, Do.Just sink) {
+            super(1);
+            this.head = head;
+            this.steps = steps;
+            this.sink = sink;
+        }
+
+        void start() {
+            head.begin(this);
+            if (decrementAndGet() != 0) {
+                loop();
+            }
+        }
+
+        @Override
+        public void got(Object next) {
+            value = next;
+            if (getAndIncrement() == 0) {
+                loop();
+            }
+        }
+
+        private void loop() {
+            do {
+                Object current = value;
+                value = null;
+                int i = index++;
+                if (i < steps.length) {
+                    steps[i].then(current, this);
+                } else {
+                    sink.got(current);
+                }
+            } while (decrementAndGet() != 0);
+        }
+    }
+
+    /**
+     * Collects the results of concurrent branches in order and sends the
+     * whole list when the last one arrives.
+     *
+     * Only the first value sent to each slot is kept.
+     */
+    private static final class Join<T> extends AtomicInteger {
+        private static final Object UNSET = new Object();
+
+        final AtomicReferenceArray<Object> results;
+        final Do.Just<List<T>> next;
+
+        Join(int size, Do.Just<List<T>> next) {
+            super(size);
+            results = new AtomicReferenceArray<>(size);
+            for (int i = 0; i < size; i++) {
+                results.lazySet(i, UNSET);
+            }
+            this.next = next;
+        }
+
+        Do.Just<T> slot(final int i) {
+            return new Do.Just<T>() {
+                @Override
+                public void got(T value) {
+                    if (results.compareAndSet(i, UNSET, value) && decrementAndGet() == 0) {
+                        int n = results.length();
+                        List<T> list = new ArrayList<>(n);
+                        for (int j = 0; j < n; j++) {
+                            list.add((T) results.get(j));
+                        }
+                        next.got(list);
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * The clock behind the timeout operators.
+     *
+     * A single daemon thread keeps every pending deadline in one queue, so a
+     * waiting step costs a queue entry instead of a parked thread. Deadlines
+     * that are met are removed from the queue right away. The thread only
+     * hands expired deadlines off to another executor; it never runs user
+     * code. Initialized on first use.
+     */
+    private static final class Timer {
+        static final ScheduledThreadPoolExecutor CLOCK;
+
+        static {
+            CLOCK = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread t = new Thread(task, "vanilla-timer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            CLOCK.setRemoveOnCancelPolicy(true);
+        }
+    }
+
     /**
      * Starts a computation.
      *
@@ -36,12 +256,7 @@ public class Seq<T, U> implements Do.Execute<U> {
      * @return An executable, extendable sequence.
      */
     public static <T> Seq<?, T> of(final Do.Execute<T> block) {
-        return new Seq<>(NIL, new Do.Continue<Void, T>() {
-            @Override
-            public void then(Void ignored, Do.Just<T> next) {
-                block.begin(next);
-            }
-        });
+        return new Seq<>(NIL, new Head<>(block));
     }
 
     /**
@@ -60,6 +275,252 @@ public class Seq<T, U> implements Do.Execute<U> {
         return of(block);
     }
 
+    /**
+     * Starts several computations at once and joins their results.
+     *
+     * @param runner Where each block is run. Pass a concurrent runner like
+     *               an {@link ExecutorContext} to run them in parallel.
+     * @param blocks The computations. Each one must call its continuation;
+     *               only the first call counts.
+     * @param <T> The type of the values.
+     * @return A sequence that sends the results in the same order as the
+     *         blocks, in the thread of the block that finishes last.
+     */
+    public static <T> Seq<?, List<T>> all(
+            final Runner runner,
+            final List<? extends Do.Execute<? extends T>> blocks) {
+        return of(new Do.Execute<List<T>>() {
+            @Override
+            public void begin(Do.Just<List<T>> next) {
+                int n = blocks.size();
+                if (n == 0) {
+                    next.got(Collections.<T>emptyList());
+                    return;
+                }
+                Join<T> join = new Join<>(n, next);
+                for (int i = 0; i < n; i++) {
+                    Do.Execute<T> block = (Do.Execute<T>) blocks.get(i);
+                    runner.apply(block).begin(join.slot(i));
+                }
+            }
+        });
+    }
+
+    /**
+     * @see #all(Runner, List)
+     */
+    @SafeVarargs
+    public static <T> Seq<?, List<T>> all(Runner runner, Do.Execute<? extends T>... blocks) {
+        return all(runner, Arrays.asList(blocks));
+    }
+
+    /**
+     * Starts several computations at once and sends the first result.
+     *
+     * The other computations are not stopped; their results are ignored.
+     *
+     * @param runner Where each block is run.
+     * @param blocks The computations. Must not be empty.
+     * @param <T> The type of the values.
+     * @return A sequence that sends the first value produced by any block,
+     *         in the thread of that block.
+     * @throws IllegalArgumentException if there are no blocks, because the
+     *         sequence would never call back.
+     */
+    public static <T> Seq<?, T> any(
+            final Runner runner,
+            final List<? extends Do.Execute<? extends T>> blocks) {
+        if (blocks.isEmpty()) {
+            throw new IllegalArgumentException("any() needs at least one block");
+        }
+        return of(new Do.Execute<T>() {
+            @Override
+            public void begin(final Do.Just<T> next) {
+                final AtomicBoolean done = new AtomicBoolean(false);
+                Do.Just<T> first = new Do.Just<T>() {
+                    @Override
+                    public void got(T value) {
+                        if (done.compareAndSet(false, true)) {
+                            next.got(value);
+                        }
+                    }
+                };
+                for (Do.Execute<? extends T> block : blocks) {
+                    if (done.get()) {
+                        break;
+                    }
+                    runner.apply((Do.Execute<T>) block).begin(first);
+                }
+            }
+        });
+    }
+
+    /**
+     * @see #any(Runner, List)
+     */
+    @SafeVarargs
+    public static <T> Seq<?, T> any(Runner runner, Do.Execute<? extends T>... blocks) {
+        return any(runner, Arrays.asList(blocks));
+    }
+
+    /**
+     * Creates a step that runs another step on every item of a collection at
+     * once and joins the results.
+     *
+     * @param runner Where each item is processed.
+     * @param step The function to apply to each item. Must call its
+     *             continuation; only the first call counts.
+     * @param <T> The type of the items.
+     * @param <U> The type of the results.
+     * @param <C> The type of the collection.
+     * @return A step that sends the results in iteration order, in the thread
+     *         of the item that finishes last.
+     */
+    public static <T, U, C extends Iterable<T>> Do.Continue<C, List<U>> parallelMap(
+            final Runner runner,
+            final Do.Continue<T, U> step) {
+        final Do.Continue<T, U> inContext = runner.apply(step);
+        return new Do.Continue<C, List<U>>() {
+            @Override
+            public void then(C items, Do.Just<List<U>> next) {
+                List<T> list = new ArrayList<>();
+                for (T item : items) {
+                    list.add(item);
+                }
+                int n = list.size();
+                if (n == 0) {
+                    next.got(Collections.<U>emptyList());
+                    return;
+                }
+                Join<U> join = new Join<>(n, next);
+                for (int i = 0; i < n; i++) {
+                    inContext.then(list.get(i), join.slot(i));
+                }
+            }
+        };
+    }
+
+    /**
+     * Limits the time a computation may take to call back.
+     *
+     * If the block calls its continuation in time, its value is sent
+     * wrapped in a {@link Do.Try}. Otherwise a {@link TimeoutException} is
+     * sent from the fallback executor and any later call from the block is
+     * ignored. The timer thread itself only hands the timeout off, so a slow
+     * continuation never holds up the other deadlines. The block is not
+     * stopped; pair this with a {@link CancelToken} if it can stop early.
+     *
+     * @param time How long to wait for the block.
+     * @param unit The time unit.
+     * @param fallback Where the timeout error is sent from. Runs in the timer
+     *                 thread if the executor rejects it.
+     * @param block The computation. Only its first call back counts.
+     * @param <T> The type of the value.
+     * @return A computation that always calls back exactly once.
+     */
+    public static <T> Do.Execute<Do.Try<T>> timeout(
+            final long time,
+            final TimeUnit unit,
+            final Executor fallback,
+            final Do.Execute<T> block) {
+        return new Do.Execute<Do.Try<T>>() {
+            @Override
+            public void begin(final Do.Just<Do.Try<T>> next) {
+                final Either<TimeoutException, T> result = new Either<>();
+                final Runnable expire = new Runnable() {
+                    @Override
+                    public void run() {
+                        result.fail(new TimeoutException(
+                                "no result after " + time + " " + unit));
+                    }
+                };
+                final AtomicReference<Future<?>> deadline = new AtomicReference<>();
+                // registered before the timer starts, otherwise a deadline
+                // that expires right away would call back in this thread
+                result.onComplete(new Do.Just<Do.Try<T>>() {
+                    @Override
+                    public void got(Do.Try<T> outcome) {
+                        Future<?> d = deadline.get();
+                        if (d != null) {
+                            d.cancel(false);
+                        }
+                        next.got(outcome);
+                    }
+                });
+                deadline.set(Timer.CLOCK.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            fallback.execute(expire);
+                        } catch (RejectedExecutionException e) {
+                            expire.run();
+                        }
+                    }
+                }, time, unit));
+                block.begin(new Do.Just<T>() {
+                    @Override
+                    public void got(T value) {
+                        result.pass(value);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Sends timeout errors from the {@link VirtualThreads#EXECUTOR}.
+     *
+     * @see #timeout(long, TimeUnit, Executor, Do.Execute)
+     */
+    public static <T> Do.Execute<Do.Try<T>> timeout(
+            long time,
+            TimeUnit unit,
+            Do.Execute<T> block) {
+        return timeout(time, unit, VirtualThreads.EXECUTOR, block);
+    }
+
+    /**
+     * Limits the time a step may take to call back.
+     *
+     * @param time How long to wait for the step.
+     * @param unit The time unit.
+     * @param fallback Where the timeout error is sent from.
+     * @param step The step. Only its first call back counts.
+     * @param <T> The type of the value received by the step.
+     * @param <U> The type of the value produced by the step.
+     * @return A step that always calls back exactly once.
+     * @see #timeout(long, TimeUnit, Executor, Do.Execute)
+     */
+    public static <T, U> Do.Continue<T, Do.Try<U>> timeout(
+            final long time,
+            final TimeUnit unit,
+            final Executor fallback,
+            final Do.Continue<T, U> step) {
+        return new Do.Continue<T, Do.Try<U>>() {
+            @Override
+            public void then(final T value, Do.Just<Do.Try<U>> next) {
+                timeout(time, unit, fallback, new Do.Execute<U>() {
+                    @Override
+                    public void begin(Do.Just<U> next) {
+                        step.then(value, next);
+                    }
+                }).begin(next);
+            }
+        };
+    }
+
+    /**
+     * Sends timeout errors from the {@link VirtualThreads#EXECUTOR}.
+     *
+     * @see #timeout(long, TimeUnit, Executor, Do.Continue)
+     */
+    public static <T, U> Do.Continue<T, Do.Try<U>> timeout(
+            long time,
+            TimeUnit unit,
+            Do.Continue<T, U> step) {
+        return timeout(time, unit, VirtualThreads.EXECUTOR, step);
+    }
+
     private final Do.Execute<T> prev;
     private final Do.Continue<T, U> step;
 
@@ -92,6 +553,30 @@ public class Seq<T, U> implements Do.Execute<U> {
         return pipe(next);
     }
 
+    /**
+     * Sets a deadline for the whole sequence up to this point.
+     *
+     * @param time How long to wait for the last step, measured from the
+     *             time the sequence begins.
+     * @param unit The time unit.
+     * @param fallback Where the timeout error is sent from.
+     * @return A sequence that sends either the value of the last step or a
+     *         {@link TimeoutException}.
+     * @see #timeout(long, TimeUnit, Executor, Do.Execute)
+     */
+    public Seq<?, Do.Try<U>> timeout(long time, TimeUnit unit, Executor fallback) {
+        return tryOf(timeout(time, unit, fallback, this));
+    }
+
+    /**
+     * Sends timeout errors from the {@link VirtualThreads#EXECUTOR}.
+     *
+     * @see #timeout(long, TimeUnit, Executor)
+     */
+    public Seq<?, Do.Try<U>> timeout(long time, TimeUnit unit) {
+        return timeout(time, unit, VirtualThreads.EXECUTOR);
+    }
+
     /**
      * Executes a computation.
      *
@@ -110,6 +595,28 @@ public class Seq<T, U> implements Do.Execute<U> {
         });
     }
 
+    /**
+     * Executes a computation that can be abandoned halfway.
+     *
+     * The token is checked before every step and before the final
+     * continuation is called. Once it is cancelled, the step that is already
+     * running finishes but nothing after it is called. Steps that can stop
+     * early may also hold on to the token themselves.
+     *
+     * @param token The cancellation flag.
+     * @param next The last step in the computation.
+     */
+    public void begin(final CancelToken token, final Do.Just<U> next) {
+        run(token, new Do.Just<U>() {
+            @Override
+            public void got(U value) {
+                if (!token.isCancelled()) {
+                    next.got(value);
+                }
+            }
+        });
+    }
+
     /**
      * Executes a computation and ignores the final value produced.
      */
@@ -117,4 +624,69 @@ public class Seq<T, U> implements Do.Execute<U> {
         begin(NOOP);
     }
 
+    private void run(final CancelToken token, final Do.Just<U> next) {
+        if (token.isCancelled()) {
+            return;
+        }
+        Do.Just<T> guarded = new Do.Just<T>() {
+            @Override
+            public void got(T value) {
+                if (!token.isCancelled()) {
+                    step.then(value, next);
+                }
+            }
+        };
+        if (prev instanceof Seq) {
+            ((Seq<?, T>) prev).run(token, guarded);
+        } else {
+            prev.begin(guarded);
+        }
+    }
+
+    /**
+     * Returns a view of this sequence that runs in constant stack depth.
+     *
+     * {@link #begin(Do.Just)} calls every step of the sequence in a nested
+     * fashion, so a long sequence of steps that call back synchronously can
+     * overflow the stack. The view returned by this method runs the steps in
+     * a {@link Trampoline} loop instead. Unlike {@link #compile()}, steps may
+     * call their continuations any number of times.
+     *
+     * @return An executable sequence with the same steps as this.
+     */
+    public Do.Execute<U> trampolined() {
+        Compiled<U> flat = compile();
+        return new Bounce<>(flat.head, flat.steps);
+    }
+
+    /**
+     * Flattens this sequence into a reusable form that is cheaper to run.
+     *
+     * The compiled sequence does not see steps piped to this object later.
+     *
+     * @return An executable sequence with the same steps as this.
+     * @see Compiled
+     */
+    public Compiled<U> compile() {
+        int n = 0;
+        Do.Execute root = this;
+        while (root instanceof Seq) {
+            root = ((Seq) root).prev;
+            n++;
+        }
+        Do.Continue[] steps = new Do.Continue[n];
+        Do.Execute it = this;
+        while (n > 0) {
+            Seq seq = (Seq) it;
+            steps[--n] = seq.step;
+            it = seq.prev;
+        }
+        if (root == NIL && steps[0] instanceof Head) {
+            Do.Continue[] rest = new Do.Continue[steps.length - 1];
+            System.arraycopy(steps, 1, rest, 0, rest.length);
+            return new Compiled<>(((Head) steps[0]).block, rest);
+        }
+        return new Compiled<>(root, steps);
+    }
+
 }
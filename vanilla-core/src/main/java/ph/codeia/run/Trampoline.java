@@ -0,0 +1,80 @@
+package ph.codeia.run;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * Runs blocks in a loop in the current thread instead of nesting the calls.
+ *
+ * The first block decorated by this runner that is called in a thread starts
+ * a loop. Blocks called while the loop is running are queued and run by the
+ * loop after the current block returns, so the stack depth stays constant no
+ * matter how many steps call their continuations synchronously. Can be used
+ * in place of {@link PassThrough#RUNNER} as the delegate of a {@link Memoize}
+ * or {@link Jump}.
+ *
+ * Since queued blocks only run after the current block returns, a block must
+ * not wait in the same thread for another trampolined block to finish. That
+ * would deadlock.
+ *
+ * A block that throws does not stop the loop. The blocks queued after it
+ * still run, then the first error is rethrown to the caller that started
+ * the loop, with any later errors attached as suppressed exceptions.
+ *
+ * @see Seq#trampolined()
+ */
+public class Trampoline extends ExecutorContext {
+
+    private static final class Loop extends ArrayDeque<Runnable> {
+        boolean running = false;
+    }
+
+    private static final ThreadLocal<Loop> LOOP = new ThreadLocal<Loop>() {
+        @Override
+        protected Loop initialValue() {
+            return new Loop();
+        }
+    };
+
+    private static final Executor CONTEXT = new Executor() {
+        @Override
+        public void execute(Runnable block) {
+            Loop loop = LOOP.get();
+            if (loop.running) {
+                loop.add(block);
+                return;
+            }
+            loop.running = true;
+            Throwable error = null;
+            for (Runnable r = block; r != null; r = loop.poll()) {
+                try {
+                    r.run();
+                } catch (RuntimeException | Error e) {
+                    if (error == null) {
+                        error = e;
+                    } else {
+                        error.addSuppressed(e);
+                    }
+                }
+            }
+            loop.running = false;
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            }
+            if (error != null) {
+                throw (Error) error;
+            }
+        }
+    };
+
+    public static final Runner RUNNER = new Trampoline();
+
+    private Trampoline() {
+        super(CONTEXT);
+    }
+
+}
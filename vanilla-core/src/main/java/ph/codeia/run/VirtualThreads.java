@@ -0,0 +1,65 @@
+package ph.codeia.run;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * An executor and runner that start every task in a new virtual thread.
+ *
+ * Virtual threads are cheap to create and to block, so actions that call
+ * {@code Future#get()} or wait on a {@link ph.codeia.values.Wait} do not tie
+ * up an OS thread while waiting. This is the version loaded by JVMs older
+ * than 21, which have no virtual threads; it falls back to an unbounded pool
+ * of daemon platform threads. The library jar has a second version of this
+ * class for Java 21 and above.
+ *
+ * @see ph.codeia.arch.sm.Machine.Builder#onVirtualThreads()
+ */
+public final class VirtualThreads {
+
+    private static final ThreadFactory DAEMONS = new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread t = new Thread(task, "vanilla-worker-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    private static final ExecutorService POOL = Executors.newCachedThreadPool(DAEMONS);
+
+    /**
+     * Runs each task in a new virtual thread if supported, otherwise in a
+     * pooled daemon thread.
+     */
+    public static final Executor EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            POOL.execute(task);
+        }
+    };
+
+    /**
+     * Runs blocks in the {@link #EXECUTOR}.
+     */
+    public static final Runner RUNNER = new ExecutorContext(EXECUTOR);
+
+    /**
+     * @return true if the tasks run in virtual threads.
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    private VirtualThreads() {}
+
+}
@@ -0,0 +1,171 @@
+package ph.codeia.signal;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ph.codeia.values.Do;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * A {@link Channel} decorator that queues messages and sends them to the
+ * listeners in an executor.
+ *
+ * {@link #send(Object)} only adds the message to a bounded buffer and returns.
+ * A single task at a time is submitted to the executor to drain the buffer,
+ * so the listeners are called serially and in the order the messages were
+ * accepted even when the executor has many threads. What happens when a
+ * message is sent while the buffer is full depends on the {@link Overflow}
+ * policy.
+ *
+ * If a listener throws, the exception is propagated to the executor and a new
+ * task is submitted to deliver the rest of the buffer.
+ */
+@SuppressWarnings("unchecked")
+public class BufferedChannel<T> implements Channel<T> {
+
+    /**
+     * What to do with a message sent while the buffer is full.
+     */
+    public enum Overflow {
+        /**
+         * Waits in the sending thread until there is room in the buffer.
+         * Never use this if messages are sent from the executor thread
+         * itself; the sender would wait for itself forever. If the sender is
+         * interrupted while waiting, the message is discarded and the
+         * interrupt flag is set again.
+         */
+        BLOCK,
+
+        /**
+         * Discards the oldest message in the buffer to make room.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Discards the new message.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Discards every message in the buffer whenever a new one is sent,
+         * full or not. Listeners only get the latest message at the time the
+         * buffer is drained. The capacity is ignored.
+         */
+        CONFLATE,
+    }
+
+    private static final Object NULL = new Object();
+
+    private final Queue<Object> buffer = new ArrayDeque<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Executor executor;
+    private final int capacity;
+    private final Overflow policy;
+    private final Channel<T> delegate;
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                for (Object m = poll(); m != null; m = poll()) {
+                    try {
+                        delegate.send(m == NULL ? null : (T) m);
+                    } catch (RuntimeException | Error e) {
+                        executor.execute(this);
+                        throw e;
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    };
+
+    /**
+     * @param executor Where the listeners are called.
+     * @param capacity The max number of undelivered messages.
+     * @param policy What to do when the buffer is full.
+     * @param delegate The channel that holds the listeners.
+     */
+    public BufferedChannel(
+            Executor executor,
+            int capacity,
+            Overflow policy,
+            Channel<T> delegate) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.delegate = delegate;
+    }
+
+    public BufferedChannel(Executor executor, int capacity, Overflow policy) {
+        this(executor, capacity, policy, new SimpleChannel<T>());
+    }
+
+    @Override
+    public void send(T message) {
+        Object m = message == null ? NULL : message;
+        synchronized (buffer) {
+            if (policy == Overflow.CONFLATE) {
+                buffer.clear();
+            } else if (buffer.size() >= capacity) switch (policy) {
+                case BLOCK:
+                    try {
+                        while (buffer.size() >= capacity) {
+                            buffer.wait();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    break;
+                case DROP_OLDEST:
+                    buffer.poll();
+                    break;
+                case DROP_NEWEST:
+                    return;
+            }
+            buffer.add(m);
+        }
+        if (wip.getAndIncrement() == 0) {
+            executor.execute(drain);
+        }
+    }
+
+    @Override
+    public void unlinkAll() {
+        delegate.unlinkAll();
+    }
+
+    @Override
+    public Link link(Do.Just<T> listener) {
+        return delegate.link(listener);
+    }
+
+    /**
+     * @return the number of messages waiting to be delivered.
+     */
+    public int pending() {
+        synchronized (buffer) {
+            return buffer.size();
+        }
+    }
+
+    private Object poll() {
+        synchronized (buffer) {
+            Object m = buffer.poll();
+            if (m != null && policy == Overflow.BLOCK) {
+                buffer.notifyAll();
+            }
+            return m;
+        }
+    }
+
+}
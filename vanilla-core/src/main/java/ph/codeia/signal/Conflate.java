@@ -0,0 +1,127 @@
+package ph.codeia.signal;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.values.Do;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * A {@link Channel} decorator that only delivers the latest message.
+ *
+ * Sent messages overwrite a single slot. The first message sent while the
+ * channel is idle schedules a delivery of whatever is in the slot at the time
+ * it runs. Messages sent while a delivery is pending or in progress simply
+ * replace the value in the slot and cause one more delivery after the current
+ * one. Intermediate values are dropped without allocating anything.
+ *
+ * With a plain executor, a new delivery is scheduled as soon as the previous
+ * one completes. An executor that runs tasks at frame boundaries conflates
+ * per frame. With a scheduled executor and a window, messages are delivered
+ * at most once per window.
+ *
+ * Listeners are called serially, never concurrently, even if the executor
+ * has many threads.
+ */
+@SuppressWarnings("unchecked")
+public class Conflate<T> implements Channel<T> {
+
+    private static final Object EMPTY = new Object();
+
+    private final AtomicReference<Object> slot = new AtomicReference<>(EMPTY);
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Channel<T> delegate;
+    private final Executor executor;
+    private final ScheduledExecutorService timer;
+    private final long windowNanos;
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            int missed = wip.get();
+            Object message = slot.getAndSet(EMPTY);
+            try {
+                if (message != EMPTY) {
+                    delegate.send((T) message);
+                }
+            } finally {
+                if (wip.addAndGet(-missed) != 0) {
+                    schedule();
+                }
+            }
+        }
+    };
+
+    /**
+     * Delivers the latest message when the executor gets to it.
+     *
+     * @param executor Where the listeners are called.
+     * @param delegate The channel that holds the listeners.
+     */
+    public Conflate(Executor executor, Channel<T> delegate) {
+        this.executor = executor;
+        this.timer = null;
+        this.windowNanos = 0;
+        this.delegate = delegate;
+    }
+
+    public Conflate(Executor executor) {
+        this(executor, new SimpleChannel<T>());
+    }
+
+    /**
+     * Delivers the latest message at the end of a time window that starts
+     * when a message is sent to an idle channel.
+     *
+     * @param timer Where the listeners are called.
+     * @param window The length of the window.
+     * @param unit The time unit of the window.
+     * @param delegate The channel that holds the listeners.
+     */
+    public Conflate(
+            ScheduledExecutorService timer,
+            long window,
+            TimeUnit unit,
+            Channel<T> delegate) {
+        this.executor = timer;
+        this.timer = timer;
+        this.windowNanos = unit.toNanos(window);
+        this.delegate = delegate;
+    }
+
+    public Conflate(ScheduledExecutorService timer, long window, TimeUnit unit) {
+        this(timer, window, unit, new SimpleChannel<T>());
+    }
+
+    @Override
+    public void send(T message) {
+        slot.set(message);
+        if (wip.getAndIncrement() == 0) {
+            schedule();
+        }
+    }
+
+    @Override
+    public void unlinkAll() {
+        delegate.unlinkAll();
+    }
+
+    @Override
+    public Link link(Do.Just<T> listener) {
+        return delegate.link(listener);
+    }
+
+    private void schedule() {
+        if (timer != null && windowNanos > 0) {
+            timer.schedule(drain, windowNanos, TimeUnit.NANOSECONDS);
+        } else {
+            executor.execute(drain);
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package ph.codeia.signal;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.values.Do;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * A channel that copies its listener array every time a listener is linked
+ * or unlinked.
+ *
+ * {@link #send(Object)} reads the current array and iterates over it without
+ * taking a lock or allocating anything, so slow listeners never block other
+ * senders or subscribers, and a listener may link, unlink or send on the same
+ * channel from any thread. Listeners linked or unlinked during a send do not
+ * affect that send. Prefer this over {@link SimpleChannel} when messages are
+ * sent much more often than listeners are added or removed.
+ *
+ * Like {@link SimpleChannel}, the listeners are called in temporal order and
+ * linking an equal listener twice does nothing.
+ */
+@SuppressWarnings("unchecked")
+public class CopyOnWriteChannel<T> implements Channel<T> {
+
+    private static final Do.Just[] EMPTY = new Do.Just[0];
+
+    private final AtomicReference<Do.Just<T>[]> listeners =
+            new AtomicReference<>((Do.Just<T>[]) EMPTY);
+
+    @Override
+    public void send(T message) {
+        for (Do.Just<T> listener : listeners.get()) {
+            listener.got(message);
+        }
+    }
+
+    @Override
+    public void unlinkAll() {
+        listeners.set((Do.Just<T>[]) EMPTY);
+    }
+
+    @Override
+    public Link link(final Do.Just<T> listener) {
+        while (true) {
+            Do.Just<T>[] current = listeners.get();
+            if (indexOf(current, listener) >= 0) {
+                break;
+            }
+            int n = current.length;
+            Do.Just<T>[] next = new Do.Just[n + 1];
+            System.arraycopy(current, 0, next, 0, n);
+            next[n] = listener;
+            if (listeners.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        return new Link() {
+            @Override
+            public void unlink() {
+                remove(listener);
+            }
+        };
+    }
+
+    private void remove(Do.Just<T> listener) {
+        while (true) {
+            Do.Just<T>[] current = listeners.get();
+            int i = indexOf(current, listener);
+            if (i < 0) {
+                return;
+            }
+            int n = current.length;
+            Do.Just<T>[] next = (Do.Just<T>[]) EMPTY;
+            if (n > 1) {
+                next = new Do.Just[n - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, n - i - 1);
+            }
+            if (listeners.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private static int indexOf(Object[] items, Object item) {
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].equals(item)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
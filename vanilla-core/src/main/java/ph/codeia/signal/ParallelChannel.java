@@ -0,0 +1,138 @@
+package ph.codeia.signal;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ph.codeia.run.ExecutorContext;
+import ph.codeia.run.Runner;
+import ph.codeia.values.Do;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * A {@link Channel} decorator that lets each listener choose the context it
+ * is called in.
+ *
+ * Listeners linked with {@link #link(Do.Just, Runner)} get their own queue.
+ * Sending a message only adds it to the queue of each listener and schedules
+ * a drain of that queue through the runner, so a slow listener does not delay
+ * the others and the sender does not wait for any of them. Each listener
+ * still gets the messages one at a time in the order they were sent, even
+ * when the runner has many threads. Listeners linked with
+ * {@link #link(Do.Just)} are called in the sending thread as usual.
+ *
+ * Every call to {@code link} with a runner creates a new queue, so linking
+ * the same listener twice means it will receive every message twice.
+ * Messages that are still queued when a listener is unlinked through its
+ * {@link Link} are discarded; {@link #unlinkAll()} lets the queues drain.
+ */
+public class ParallelChannel<T> implements Channel<T> {
+
+    private static class Mailbox<T> extends AtomicInteger implements Do.Just<T> {
+        final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+        final Do.Just<T> listener;
+        Do.Just<Void> drain;
+        volatile boolean linked = true;
+
+        Mailbox(Do.Just<T> listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void got(T value) {
+            queue.add(value == null ? NULL : value);
+            if (getAndIncrement() == 0) {
+                drain.got(null);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void drain() {
+            int missed = 1;
+            do {
+                for (Object m = queue.poll(); m != null; m = queue.poll()) {
+                    if (!linked) {
+                        continue;
+                    }
+                    try {
+                        listener.got(m == NULL ? null : (T) m);
+                    } catch (RuntimeException | Error e) {
+                        drain.got(null);
+                        throw e;
+                    }
+                }
+                missed = addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+
+    private static final Object NULL = new Object();
+
+    private final Channel<T> delegate;
+
+    public ParallelChannel(Channel<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    public ParallelChannel() {
+        this(new CopyOnWriteChannel<T>());
+    }
+
+    @Override
+    public void send(T message) {
+        delegate.send(message);
+    }
+
+    @Override
+    public void unlinkAll() {
+        delegate.unlinkAll();
+    }
+
+    @Override
+    public Link link(Do.Just<T> listener) {
+        return delegate.link(listener);
+    }
+
+    /**
+     * Registers a listener that is called in a runner's context.
+     *
+     * @param listener The listener.
+     * @param runner Where the listener is called. Only the
+     *               {@link Runner#run(Do.Just)} method is used.
+     * @return Save this object to unregister this listener later.
+     */
+    public Link link(Do.Just<T> listener, Runner runner) {
+        final Mailbox<T> mailbox = new Mailbox<>(listener);
+        mailbox.drain = runner.run(new Do.Just<Void>() {
+            @Override
+            public void got(Void ignored) {
+                mailbox.drain();
+            }
+        });
+        final Link link = delegate.link(mailbox);
+        return new Link() {
+            @Override
+            public void unlink() {
+                mailbox.linked = false;
+                link.unlink();
+            }
+        };
+    }
+
+    /**
+     * Registers a listener that is called in an executor.
+     *
+     * @param listener The listener.
+     * @param executor Where the listener is called.
+     * @return Save this object to unregister this listener later.
+     * @see #link(Do.Just, Runner)
+     */
+    public Link link(Do.Just<T> listener, Executor executor) {
+        return link(listener, new ExecutorContext(executor));
+    }
+
+}
@@ -0,0 +1,112 @@
+package ph.codeia.signal;
+
+import java.util.concurrent.TimeUnit;
+
+import ph.codeia.values.Do;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * A {@link Channel} that remembers the last N values sent.
+ *
+ * Unlike {@link Replay}, the values are strongly held in a fixed-size ring
+ * buffer so they are never lost to the garbage collector. Newly-registered
+ * listeners immediately receive the remembered values in the order they were
+ * sent, optionally skipping values older than a max age.
+ *
+ * The history is replayed to the new listener while holding the lock that
+ * senders use to record their messages, and the listener is linked before
+ * the lock is released, so a late joiner never misses a message. A message
+ * sent concurrently with a call to {@link #link(Do.Just)} may be received
+ * twice by the new listener. A listener must not wait during the replay for
+ * another thread that sends to this channel.
+ */
+@SuppressWarnings("unchecked")
+public class ReplayBuffer<T> implements Channel<T> {
+
+    private final Channel<T> delegate;
+    private final Object[] items;
+    private final long[] sentAt;
+    private final long maxAgeNanos;
+    private long count = 0;
+
+    /**
+     * @param capacity The number of values to remember.
+     * @param maxAge How long a value is replayed after it was sent; values
+     *               never expire when 0 or less.
+     * @param unit The time unit of the max age.
+     * @param delegate The channel that holds the listeners.
+     */
+    public ReplayBuffer(int capacity, long maxAge, TimeUnit unit, Channel<T> delegate) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.delegate = delegate;
+        items = new Object[capacity];
+        sentAt = new long[capacity];
+        maxAgeNanos = unit.toNanos(maxAge);
+    }
+
+    public ReplayBuffer(int capacity, long maxAge, TimeUnit unit) {
+        this(capacity, maxAge, unit, new SimpleChannel<T>());
+    }
+
+    public ReplayBuffer(int capacity, Channel<T> delegate) {
+        this(capacity, 0, TimeUnit.NANOSECONDS, delegate);
+    }
+
+    public ReplayBuffer(int capacity) {
+        this(capacity, new SimpleChannel<T>());
+    }
+
+    @Override
+    public void send(T message) {
+        synchronized (items) {
+            int i = (int) (count % items.length);
+            items[i] = message;
+            if (maxAgeNanos > 0) {
+                sentAt[i] = System.nanoTime();
+            }
+            count++;
+        }
+        delegate.send(message);
+    }
+
+    @Override
+    public void unlinkAll() {
+        delegate.unlinkAll();
+    }
+
+    @Override
+    public Link link(Do.Just<T> listener) {
+        synchronized (items) {
+            int n = items.length;
+            long start = Math.max(0, count - n);
+            long now = System.nanoTime();
+            for (long seq = start; seq < count; seq++) {
+                int i = (int) (seq % n);
+                if (maxAgeNanos > 0 && now - sentAt[i] > maxAgeNanos) {
+                    items[i] = null;
+                    continue;
+                }
+                listener.got((T) items[i]);
+            }
+            return delegate.link(listener);
+        }
+    }
+
+    /**
+     * Forgets every value sent so far.
+     */
+    public void clear() {
+        synchronized (items) {
+            for (int i = 0; i < items.length; i++) {
+                items[i] = null;
+            }
+            count = 0;
+        }
+    }
+
+}
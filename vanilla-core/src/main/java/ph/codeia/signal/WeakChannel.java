@@ -0,0 +1,127 @@
+package ph.codeia.signal;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.values.Do;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * A channel that does not keep its listeners alive.
+ *
+ * Listeners are held in weak references. Once a listener is collected, the
+ * next {@link #send(Object)} that comes across it removes it from the
+ * registry, so forgotten listeners stop costing anything. The registry is
+ * copied on write like {@link CopyOnWriteChannel}, so sending does not lock.
+ *
+ * The link returned by {@link #link(Do.Just)} holds the listener strongly.
+ * Something must hold either the link or the listener itself, otherwise the
+ * listener may be collected right away. This matters for lambdas and method
+ * references, which usually aren't referenced by anything other than the
+ * channel they are passed to. Saving the link in a field of the object whose
+ * lifetime should bound the listener's (e.g. an activity) is enough.
+ */
+@SuppressWarnings("unchecked")
+public class WeakChannel<T> implements Channel<T> {
+
+    private static final WeakReference[] EMPTY = new WeakReference[0];
+
+    private final AtomicReference<WeakReference<Do.Just<T>>[]> listeners =
+            new AtomicReference<>((WeakReference<Do.Just<T>>[]) EMPTY);
+
+    @Override
+    public void send(T message) {
+        boolean hasCleared = false;
+        for (WeakReference<Do.Just<T>> ref : listeners.get()) {
+            Do.Just<T> listener = ref.get();
+            if (listener == null) {
+                hasCleared = true;
+            } else {
+                listener.got(message);
+            }
+        }
+        if (hasCleared) {
+            purge(null);
+        }
+    }
+
+    @Override
+    public void unlinkAll() {
+        listeners.set((WeakReference<Do.Just<T>>[]) EMPTY);
+    }
+
+    @Override
+    public Link link(final Do.Just<T> listener) {
+        while (true) {
+            WeakReference<Do.Just<T>>[] current = listeners.get();
+            if (indexOf(current, listener) >= 0) {
+                break;
+            }
+            int n = current.length;
+            WeakReference<Do.Just<T>>[] next = new WeakReference[n + 1];
+            System.arraycopy(current, 0, next, 0, n);
+            next[n] = new WeakReference<>(listener);
+            if (listeners.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        return new Link() {
+            @Override
+            public void unlink() {
+                purge(listener);
+            }
+        };
+    }
+
+    /**
+     * @return the number of listeners that haven't been purged yet.
+     */
+    public int size() {
+        return listeners.get().length;
+    }
+
+    /**
+     * Removes every cleared reference and the listener if not null.
+     */
+    private void purge(Do.Just<T> listener) {
+        while (true) {
+            WeakReference<Do.Just<T>>[] current = listeners.get();
+            int n = current.length;
+            WeakReference<Do.Just<T>>[] next = new WeakReference[n];
+            int size = 0;
+            for (WeakReference<Do.Just<T>> ref : current) {
+                Do.Just<T> l = ref.get();
+                if (l != null && (listener == null || !l.equals(listener))) {
+                    next[size++] = ref;
+                }
+            }
+            if (size == n) {
+                return;
+            }
+            if (size == 0) {
+                next = (WeakReference<Do.Just<T>>[]) EMPTY;
+            } else {
+                WeakReference<Do.Just<T>>[] trimmed = new WeakReference[size];
+                System.arraycopy(next, 0, trimmed, 0, size);
+                next = trimmed;
+            }
+            if (listeners.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private static int indexOf(WeakReference[] refs, Object item) {
+        for (int i = 0; i < refs.length; i++) {
+            Object o = refs[i].get();
+            if (o != null && o.equals(item)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
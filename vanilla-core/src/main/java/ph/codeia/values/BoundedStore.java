@@ -0,0 +1,367 @@
+package ph.codeia.values;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * A store with a size limit, optional expiry and hit/miss counters.
+ *
+ * The keys are spread over a number of segments, each one an access-ordered
+ * map with its own lock. Threads that use keys in different segments never
+ * contend for a lock. The total weight is tracked across the whole store.
+ * When a write takes it over the limit, the least recently used entry of
+ * the whole store is evicted until it fits again, so the configured size is
+ * the real bound no matter how the keys are spread. Concurrent writers may
+ * go over the limit briefly before their evictions are done.
+ *
+ * Values are strongly held, so the memory used by the store is bounded by
+ * the configured size and not by the garbage collector. Factories passed to
+ * {@link #hardGet(String, Do.Make)} and {@link #softPut(String, Do.Make)}
+ * are called outside of any lock. If two threads miss the same key at the
+ * same time, both factories are called and the first value stored wins.
+ */
+@SuppressWarnings("unchecked")
+public class BoundedStore implements Store {
+
+    /**
+     * Holds 1024 values in 16 segments with no expiry by default.
+     */
+    public static class Builder {
+        private long maxWeight = 1024;
+        private Do.Convert<Object, Integer> weigher;
+        private long ttlNanos = 0;
+        private int concurrency = 16;
+
+        /**
+         * @param maxSize The max number of entries in the store.
+         * @return the same instance.
+         */
+        public Builder withMaxSize(long maxSize) {
+            this.maxWeight = maxSize;
+            this.weigher = null;
+            return this;
+        }
+
+        /**
+         * @param maxWeight The max total weight of the entries in the store.
+         * @param weigher Computes the weight of a value. Called once when the
+         *                value is stored. Must not return a negative number.
+         * @return the same instance.
+         */
+        public Builder withMaxWeight(long maxWeight, Do.Convert<Object, Integer> weigher) {
+            this.maxWeight = maxWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * @param ttl How long a value lives after it is stored.
+         * @param unit The time unit of the ttl.
+         * @return the same instance.
+         */
+        public Builder withTtl(long ttl, TimeUnit unit) {
+            this.ttlNanos = unit.toNanos(ttl);
+            return this;
+        }
+
+        /**
+         * @param concurrency The number of segments. Will be rounded up to a
+         *                    power of 2 and may be reduced when the max size
+         *                    is small. Does not affect the size limit.
+         * @return the same instance.
+         */
+        public Builder withConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public BoundedStore build() {
+            return new BoundedStore(maxWeight, weigher, ttlNanos, concurrency);
+        }
+    }
+
+    /**
+     * A snapshot of the counters of a store.
+     */
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+
+        Stats(long hits, long misses, long evictions) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        /**
+         * @return the ratio of hits to lookups, or 1 if there were no lookups.
+         */
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 1.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "Stats{hits=%d, misses=%d, evictions=%d}",
+                    hits, misses, evictions);
+        }
+    }
+
+    private static final class Entry {
+        final Object value;
+        final int weight;
+        final long expiresAt;
+        volatile long lastUsed;
+
+        Entry(Object value, int weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class Segment {
+        final Map<String, Entry> items = new LinkedHashMap<>(16, 0.75f, true);
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+
+        synchronized Entry find(String key) {
+            Entry e = items.get(key);
+            if (e != null && isExpired(e)) {
+                items.remove(key);
+                weight.addAndGet(-e.weight);
+                e = null;
+            }
+            if (e == null) {
+                misses++;
+            } else {
+                hits++;
+                e.lastUsed = clock.incrementAndGet();
+            }
+            return e;
+        }
+
+        synchronized Entry store(String key, Entry e, boolean overwrite) {
+            Entry old = items.get(key);
+            if (old != null && !overwrite && !isExpired(old)) {
+                old.lastUsed = clock.incrementAndGet();
+                return old;
+            }
+            if (e.weight > maxWeight) {
+                // would push out everything else and still not fit
+                if (old != null) {
+                    items.remove(key);
+                    weight.addAndGet(-old.weight);
+                }
+                evictions++;
+                return e;
+            }
+            e.lastUsed = clock.incrementAndGet();
+            items.put(key, e);
+            weight.addAndGet(old == null ? e.weight : e.weight - old.weight);
+            return e;
+        }
+
+        synchronized void remove(String key) {
+            Entry e = items.remove(key);
+            if (e != null) {
+                weight.addAndGet(-e.weight);
+            }
+        }
+
+        /**
+         * @return the least recently used entry in this segment, or null if
+         * empty.
+         */
+        synchronized Entry eldest() {
+            Iterator<Entry> it = items.values().iterator();
+            return it.hasNext() ? it.next() : null;
+        }
+
+        /**
+         * Removes the least recently used entry if the store is still over
+         * the limit.
+         */
+        synchronized void evictEldest() {
+            Iterator<Entry> it = items.values().iterator();
+            if (weight.get() > maxWeight && it.hasNext()) {
+                Entry eldest = it.next();
+                it.remove();
+                weight.addAndGet(-eldest.weight);
+                evictions++;
+            }
+        }
+
+        synchronized int size() {
+            return items.size();
+        }
+    }
+
+    private final Segment[] segments;
+    private final Do.Convert<Object, Integer> weigher;
+    private final long ttlNanos;
+    private final long maxWeight;
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * @param maxWeight The max total weight of the entries in the store.
+     * @param weigher Computes the weight of a value; every entry weighs 1
+     *                when null.
+     * @param ttlNanos How long a value lives after it is stored; values never
+     *                 expire when 0 or less.
+     * @param concurrency The number of segments.
+     * @see Builder
+     */
+    public BoundedStore(
+            long maxWeight,
+            Do.Convert<Object, Integer> weigher,
+            long ttlNanos,
+            int concurrency) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("maxWeight must be positive");
+        }
+        int n = 1;
+        while (n < concurrency && n < maxWeight) {
+            n <<= 1;
+        }
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment();
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * Creates a store that holds a fixed number of values that never expire.
+     *
+     * @param maxSize The max number of entries in the store.
+     */
+    public BoundedStore(long maxSize) {
+        this(maxSize, null, 0, 16);
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        segmentFor(key).store(key, entry(value), true);
+        trim();
+    }
+
+    @Override
+    public void softPut(String key, Do.Make<Object> lazyValue) {
+        Segment s = segmentFor(key);
+        if (s.find(key) == null) {
+            s.store(key, entry(lazyValue.get()), false);
+            trim();
+        }
+    }
+
+    @Override
+    public <T> T get(String key, T fallback) {
+        Entry e = segmentFor(key).find(key);
+        return e == null ? fallback : (T) e.value;
+    }
+
+    @Override
+    public <T> T hardGet(String key, Do.Make<T> lazyValue) {
+        Segment s = segmentFor(key);
+        Entry e = s.find(key);
+        if (e == null) {
+            e = s.store(key, entry(lazyValue.get()), false);
+            trim();
+        }
+        return (T) e.value;
+    }
+
+    @Override
+    public void clear(String key) {
+        segmentFor(key).remove(key);
+    }
+
+    /**
+     * @return the number of live and expired-but-not-yet-removed entries.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment s : segments) {
+            size += s.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return a snapshot of the hit, miss and eviction counters.
+     */
+    public Stats stats() {
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                hits += s.hits;
+                misses += s.misses;
+                evictions += s.evictions;
+            }
+        }
+        return new Stats(hits, misses, evictions);
+    }
+
+    /**
+     * Evicts the least recently used entries of the whole store until the
+     * total weight is within the limit.
+     *
+     * Each round looks at the eldest entry of every segment, so this is
+     * linear in the number of segments per eviction. Values heavier than the
+     * limit by themselves never get this far; they are not stored at all.
+     */
+    private void trim() {
+        while (weight.get() > maxWeight) {
+            Segment victim = null;
+            long oldest = 0;
+            for (Segment s : segments) {
+                Entry e = s.eldest();
+                if (e != null && (victim == null || e.lastUsed < oldest)) {
+                    victim = s;
+                    oldest = e.lastUsed;
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            victim.evictEldest();
+        }
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    private Entry entry(Object value) {
+        int weight = weigher == null ? 1 : weigher.from(value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight: " + weight);
+        }
+        long expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : Long.MAX_VALUE;
+        return new Entry(value, weight, expiresAt);
+    }
+
+    private boolean isExpired(Entry e) {
+        return ttlNanos > 0 && System.nanoTime() - e.expiresAt >= 0;
+    }
+
+}
@@ -0,0 +1,205 @@
+package ph.codeia.values;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * The completion state shared by {@link Either} and {@link Wait}.
+ *
+ * The state is a single volatile int that moves from {@link #PENDING} to
+ * {@link #SETTLING} to some final state exactly once. Only the thread that
+ * wins the {@link #claim()} may write the result, after which it publishes
+ * the final state with {@link #settle(int)}. Threads waiting for the result
+ * push themselves onto a lock-free stack and park; settling wakes all of
+ * them. Callbacks registered with {@link #whenSettled(Runnable)} share the
+ * same stack and are run by the settling thread in registration order,
+ * after every waiting thread has been woken up. No monitor is ever taken.
+ * A waiter that times out or is interrupted leaves an empty node in the
+ * stack until the state is settled.
+ */
+abstract class Completion {
+
+    static final int PENDING = 0;
+    static final int SETTLING = 1;
+
+    private static final class Node {
+        volatile Thread thread;
+        volatile Runnable callback;
+        Node next;
+
+        Node(Thread thread, Runnable callback) {
+            this.thread = thread;
+            this.callback = callback;
+        }
+
+        void wake() {
+            Thread t = thread;
+            if (t != null) {
+                thread = null;
+                LockSupport.unpark(t);
+            }
+        }
+
+        void call() {
+            Runnable r = callback;
+            if (r != null && CALLBACK.compareAndSet(this, r, null)) {
+                r.run();
+            }
+        }
+
+        void fire() {
+            wake();
+            call();
+        }
+    }
+
+    private static final AtomicReferenceFieldUpdater<Node, Runnable> CALLBACK =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Runnable.class, "callback");
+
+    private static final AtomicIntegerFieldUpdater<Completion> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Completion.class, "state");
+
+    private static final AtomicReferenceFieldUpdater<Completion, Node> WAITERS =
+            AtomicReferenceFieldUpdater.newUpdater(Completion.class, Node.class, "waiters");
+
+    private volatile int state = PENDING;
+    private volatile Node waiters;
+
+    /**
+     * @return the current state; a value greater than {@link #SETTLING}
+     * means the result is safe to read.
+     */
+    final int state() {
+        return state;
+    }
+
+    final boolean isSettled() {
+        return state > SETTLING;
+    }
+
+    /**
+     * @return true if the caller may now write the result.
+     */
+    final boolean claim() {
+        return state == PENDING && STATE.compareAndSet(this, PENDING, SETTLING);
+    }
+
+    /**
+     * Publishes the result written since the last {@link #claim()} and wakes
+     * every waiting thread.
+     *
+     * Every waiting thread is unparked before any callback is run, and every
+     * callback is run even if an earlier one throws. The first error thrown
+     * by a callback is rethrown once all of them are done; the rest are
+     * attached to it as suppressed exceptions.
+     *
+     * @param outcome The final state. Must be greater than {@link #SETTLING}.
+     */
+    final void settle(int outcome) {
+        state = outcome;
+        Node reversed = null;
+        for (Node n = WAITERS.getAndSet(this, null); n != null;) {
+            Node next = n.next;
+            n.next = reversed;
+            reversed = n;
+            n = next;
+        }
+        for (Node n = reversed; n != null; n = n.next) {
+            n.wake();
+        }
+        Throwable error = null;
+        for (Node n = reversed; n != null; n = n.next) {
+            try {
+                n.call();
+            } catch (RuntimeException | Error e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error != null) {
+            throw (Error) error;
+        }
+    }
+
+    /**
+     * Runs a block once the state is settled.
+     *
+     * The block is run immediately in the current thread if already settled,
+     * otherwise in the thread that settles the state. It is run exactly once.
+     *
+     * @param block The function to call.
+     */
+    final void whenSettled(Runnable block) {
+        if (isSettled()) {
+            block.run();
+            return;
+        }
+        Node node = new Node(null, block);
+        while (true) {
+            Node head = waiters;
+            node.next = head;
+            if (WAITERS.compareAndSet(this, head, node)) {
+                break;
+            }
+        }
+        if (isSettled()) {
+            node.fire();
+        }
+    }
+
+    /**
+     * Parks the current thread until the state is settled.
+     *
+     * @param timed Whether to give up after some time.
+     * @param nanos How long to wait if timed.
+     * @return false if timed out.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    final boolean await(boolean timed, long nanos) throws InterruptedException {
+        if (isSettled()) {
+            return true;
+        }
+        long deadline = timed ? System.nanoTime() + nanos : 0;
+        Node node = null;
+        boolean queued = false;
+        while (true) {
+            if (isSettled()) {
+                if (node != null) {
+                    node.thread = null;
+                }
+                return true;
+            }
+            if (node == null) {
+                node = new Node(Thread.currentThread(), null);
+            } else if (!queued) {
+                Node head = waiters;
+                node.next = head;
+                queued = WAITERS.compareAndSet(this, head, node);
+            } else if (Thread.interrupted()) {
+                node.thread = null;
+                throw new InterruptedException();
+            } else if (timed) {
+                nanos = deadline - System.nanoTime();
+                if (nanos <= 0) {
+                    node.thread = null;
+                    return false;
+                }
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+    }
+
+}
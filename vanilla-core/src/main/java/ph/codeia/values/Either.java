@@ -1,6 +1,7 @@
 package ph.codeia.values;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -15,12 +16,20 @@ import java.util.concurrent.TimeoutException;
  * {@link Future}.
  *
  * Calls to {@link #get()} will block the thread until a value or an error
- * is set.
+ * is set. Completing and waiting never take a lock; waiting threads are
+ * parked and woken directly by the thread that completes this.
+ *
+ * To consume the result without blocking, use {@link #onComplete(Do.Just)}
+ * or the {@link #map(Do.Map)} and {@link #flatMap(Do.Map)} combinators.
+ * An either is also a {@link Do.Execute} so it can start a
+ * {@link ph.codeia.run.Seq#tryOf(Do.Execute) Seq}.
  *
  * @param <E> The error type, must be a subtype of {@link Exception}.
  * @param <T> The success type.
  */
-public class Either<E extends Exception, T> implements Do.Try<T> {
+public class Either<E extends Exception, T>
+extends Completion
+implements Do.Try<T>, Do.Execute<Do.Try<T>> {
 
     /**
      * Creates an Either from a {@link Callable}.
@@ -65,24 +74,17 @@ public class Either<E extends Exception, T> implements Do.Try<T> {
         return either;
     }
 
-    private enum State { INCOMPLETE, ERROR, OK }
+    private static final int OK = 2;
+    private static final int ERROR = 3;
+    private static final int CANCELLED = 4;
 
-    private State state = State.INCOMPLETE;
     private E error;
     private T value;
 
     @Override
     public T get() throws E, InterruptedException {
-        while (true) switch (state) {
-            case OK:
-                return value;
-            case ERROR:
-                throw error;
-            case INCOMPLETE:
-                synchronized (this) {
-                    wait();
-                }
-        }
+        await(false, 0);
+        return report();
     }
 
     /**
@@ -90,11 +92,10 @@ public class Either<E extends Exception, T> implements Do.Try<T> {
      *
      * @param error Should be an {@link Exception} subtype
      */
-    public synchronized void fail(E error) {
-        if (state == State.INCOMPLETE) {
+    public void fail(E error) {
+        if (claim()) {
             this.error = error;
-            state = State.ERROR;
-            notifyAll();
+            settle(ERROR);
         }
     }
 
@@ -103,47 +104,189 @@ public class Either<E extends Exception, T> implements Do.Try<T> {
      *
      * @param value The success value.
      */
-    public synchronized void pass(T value) {
-        if (state == State.INCOMPLETE) {
+    public void pass(T value) {
+        if (claim()) {
             this.value = value;
-            state = State.OK;
-            notifyAll();
+            settle(OK);
+        }
+    }
+
+    /**
+     * Calls a block with this object when the computation is completed.
+     *
+     * The block is called immediately in the current thread if already
+     * completed, otherwise in the thread that completes this. Calling
+     * {@link #get()} on the argument never blocks.
+     * If the block throws, the other callbacks and waiting threads are still
+     * called back, then the error is rethrown by the completing call.
+     *
+     * @param block The function to call.
+     */
+    public void onComplete(final Do.Just<Do.Try<T>> block) {
+        whenSettled(new Runnable() {
+            @Override
+            public void run() {
+                block.got(Either.this);
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #onComplete(Do.Just)}.
+     */
+    @Override
+    public void begin(Do.Just<Do.Try<T>> next) {
+        onComplete(next);
+    }
+
+    /**
+     * Transforms the value when the computation is completed.
+     *
+     * @param f Called in the thread that completes this, or immediately if
+     *          already completed.
+     * @param <U> The new value type.
+     * @return An either that fails with the same error as this or the
+     *         exception thrown by the function.
+     */
+    public <U> Either<Exception, U> map(final Do.Map<? super T, ? extends U> f) {
+        final Either<Exception, U> result = new Either<>();
+        whenSettled(new Runnable() {
+            @Override
+            public void run() {
+                if (propagateTo(result)) {
+                    return;
+                }
+                try {
+                    result.pass(f.from(value));
+                } catch (Exception e) {
+                    result.fail(e);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Starts another computation when this one is completed.
+     *
+     * @param f Produces the next computation. Called in the thread that
+     *          completes this, or immediately if already completed.
+     * @param <U> The new value type.
+     * @return An either that completes with the result of the next
+     *         computation, or fails with the same error as this or the
+     *         exception thrown by the function.
+     */
+    public <U> Either<Exception, U> flatMap(
+            final Do.Map<? super T, ? extends Either<? extends Exception, ? extends U>> f) {
+        final Either<Exception, U> result = new Either<>();
+        whenSettled(new Runnable() {
+            @Override
+            public void run() {
+                if (propagateTo(result)) {
+                    return;
+                }
+                final Either<? extends Exception, ? extends U> next;
+                try {
+                    next = f.from(value);
+                } catch (Exception e) {
+                    result.fail(e);
+                    return;
+                }
+                next.whenSettled(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!next.propagateTo(result)) {
+                            result.pass(next.value);
+                        }
+                    }
+                });
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Completes the computation without a value.
+     *
+     * Threads waiting in {@link #get()} are woken up and get a
+     * {@link CancellationException}. Does nothing if already completed.
+     *
+     * @return true if this call cancelled the computation.
+     */
+    public boolean cancel() {
+        if (claim()) {
+            settle(CANCELLED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if {@link #cancel()} completed this.
+     */
+    public boolean isCancelled() {
+        return state() == CANCELLED;
+    }
+
+    /**
+     * Sends the error or cancellation of this to another either.
+     *
+     * @return false if this has a value, in which case nothing is sent.
+     */
+    private boolean propagateTo(Either<Exception, ?> other) {
+        switch (state()) {
+            case ERROR:
+                other.fail(error);
+                return true;
+            case CANCELLED:
+                other.cancel();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private T report() throws E {
+        switch (state()) {
+            case ERROR:
+                throw error;
+            case CANCELLED:
+                throw new CancellationException();
+            default:
+                return value;
         }
     }
 
     /**
      * Creates a future.
      *
-     * @return {@link Future#cancel(boolean) Cancel} does nothing. Mostly useful
-     *         for the {@link Future#get(long, TimeUnit) timed get} and
-     *         compatibility with other code that consumes futures.
+     * @return A view of this computation. {@link Future#cancel(boolean) Cancel}
+     *         is the same as {@link #cancel()}; it never interrupts anything
+     *         since there is no task to interrupt. Mostly useful for the
+     *         {@link Future#get(long, TimeUnit) timed get} and compatibility
+     *         with other code that consumes futures.
      */
     public Future<T> toFuture() {
         return new Future<T>() {
             @Override
             public boolean cancel(boolean mayInterruptIfRunning) {
-                return false;
+                return Either.this.cancel();
             }
 
             @Override
             public boolean isCancelled() {
-                return false;
+                return Either.this.isCancelled();
             }
 
             @Override
             public boolean isDone() {
-                return state != State.INCOMPLETE;
+                return isSettled();
             }
 
             @Override
             public T get() throws InterruptedException, ExecutionException {
-                try {
-                    return Either.this.get();
-                } catch (InterruptedException e) {
-                    throw e;
-                } catch (Throwable e) {
-                    throw new ExecutionException(e);
-                }
+                await(false, 0);
+                return unwrap();
             }
 
             @Override
@@ -153,22 +296,20 @@ public class Either<E extends Exception, T> implements Do.Try<T> {
                 if (timeout <= 0) {
                     return get();
                 }
-                long remaining = unit.toNanos(timeout);
-                while (true) switch (state) {
-                    case OK:
-                        return value;
+                if (!await(true, unit.toNanos(timeout))) {
+                    throw new TimeoutException();
+                }
+                return unwrap();
+            }
+
+            private T unwrap() throws ExecutionException {
+                switch (state()) {
                     case ERROR:
                         throw new ExecutionException(error);
-                    case INCOMPLETE:
-                        if (remaining <= 0) {
-                            throw new TimeoutException();
-                        }
-                        synchronized (Either.this) {
-                            long aWhileAgo = System.nanoTime();
-                            TimeUnit.NANOSECONDS.timedWait(Either.this, remaining);
-                            long elapsed = System.nanoTime() - aWhileAgo;
-                            remaining -= elapsed;
-                        }
+                    case CANCELLED:
+                        throw new CancellationException();
+                    default:
+                        return value;
                 }
             }
         };
@@ -1,5 +1,7 @@
 package ph.codeia.values;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * This file is a part of the vanilla project.
  */
@@ -7,6 +9,15 @@ package ph.codeia.values;
 /**
  * A value that is computed only once.
  *
+ * The computed value is published through a volatile field, so once it is
+ * ready, {@link #get()} is a single volatile read with no locking. Only the
+ * threads that find the value missing or expired synchronize, and only one
+ * of them calls the factory.
+ *
+ * A lazy value can optionally expire some time after it was computed, or be
+ * {@link #reset()} manually. The next call to {@link #get()} after that
+ * computes the value again. This makes it usable as a cheap refreshing cache.
+ *
  * @param <T> The type of the value.
  */
 public abstract class Lazy<T> implements Do.Make<T> {
@@ -23,21 +34,74 @@ public abstract class Lazy<T> implements Do.Make<T> {
         };
     }
 
-    private boolean ready = false;
-    private T value;
+    /**
+     * Creates a lazy value that is recomputed when it's older than the ttl.
+     *
+     * @param ttl How long the value is kept after it is computed.
+     * @param unit The time unit of the ttl.
+     * @param value The factory.
+     * @param <T> The type of the value.
+     * @return a lazy value.
+     */
+    public static <T> Lazy<T> expiring(long ttl, TimeUnit unit, final Do.Make<T> value) {
+        return new Lazy<T>(ttl, unit) {
+            @Override
+            protected T value() {
+                return value.get();
+            }
+        };
+    }
+
+    private static final class Holder<T> {
+        final T value;
+        final long expiresAt;
+
+        Holder(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long ttlNanos;
+    private volatile Holder<T> holder;
+
+    /**
+     * @param ttl How long the value is kept after it is computed; the value
+     *            never expires when 0 or less.
+     * @param unit The time unit of the ttl.
+     */
+    protected Lazy(long ttl, TimeUnit unit) {
+        ttlNanos = unit.toNanos(ttl);
+    }
+
+    protected Lazy() {
+        this(0, TimeUnit.NANOSECONDS);
+    }
 
     @Override
     public T get() {
-        if (ready) {
-            return value;
+        Holder<T> h = holder;
+        if (isLive(h)) {
+            return h.value;
         }
         synchronized (this) {
-            if (!ready) {
-                value = value();
-                ready = true;
+            h = holder;
+            if (!isLive(h)) {
+                T value = value();
+                long expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+                h = new Holder<>(value, expiresAt);
+                holder = h;
             }
+            return h.value;
         }
-        return value;
+    }
+
+    /**
+     * Forgets the computed value so that the next {@link #get()} computes it
+     * again. Threads that already got the old value keep it.
+     */
+    public void reset() {
+        holder = null;
     }
 
     /**
@@ -46,8 +110,13 @@ public abstract class Lazy<T> implements Do.Make<T> {
      * It is more convenient to extend and implement this if lambdas
      * aren't available.
      *
-     * @return Nullable. Will never be called again even if this returns null.
+     * @return Nullable. Will never be called again even if this returns null,
+     * unless the value expires or is reset.
      */
     protected abstract T value();
 
+    private boolean isLive(Holder<T> h) {
+        return h != null && (ttlNanos <= 0 || System.nanoTime() - h.expiresAt < 0);
+    }
+
 }
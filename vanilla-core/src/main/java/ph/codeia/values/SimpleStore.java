@@ -34,16 +34,18 @@ public class SimpleStore implements Store {
 
     @Override
     public <T> T get(String key, T fallback) {
-        if (items.containsKey(key)) {
-            return (T) items.get(key).get();
+        SoftReference<Object> ref = items.get(key);
+        if (ref != null) {
+            return (T) ref.get();
         }
         return fallback;
     }
 
     @Override
     public <T> T hardGet(String key, Do.Make<T> lazyValue) {
-        if (items.containsKey(key)) {
-            return (T) items.get(key).get();
+        SoftReference<Object> ref = items.get(key);
+        if (ref != null) {
+            return (T) ref.get();
         }
         synchronized (items) {
             T value = lazyValue.get();
@@ -0,0 +1,120 @@
+package ph.codeia.values;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * A {@link Store} decorator that calls at most one factory per key at a time.
+ *
+ * When several threads call {@link #hardGet(String, Do.Make)} with the same
+ * absent key, only the first one runs its factory. The rest wait for that
+ * value instead of computing their own. Misses on different keys do not
+ * wait for each other. No lock is held while a factory runs.
+ *
+ * A factory must not call {@code hardGet} with its own key in the same
+ * thread; it would wait for itself forever.
+ */
+@SuppressWarnings("unchecked")
+public class SingleFlight implements Store {
+
+    private static final Object ABSENT = new Object();
+
+    private final Store delegate;
+    private final ConcurrentMap<String, FutureTask<Object>> flights =
+            new ConcurrentHashMap<>();
+
+    public SingleFlight(Store delegate) {
+        this.delegate = delegate;
+    }
+
+    public SingleFlight() {
+        this(new SimpleStore());
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public void softPut(String key, Do.Make<Object> lazyValue) {
+        hardGet(key, lazyValue);
+    }
+
+    @Override
+    public <T> T get(String key, T fallback) {
+        return delegate.get(key, fallback);
+    }
+
+    @Override
+    public <T> T hardGet(final String key, final Do.Make<T> lazyValue) {
+        Object value = delegate.get(key, ABSENT);
+        if (value != ABSENT) {
+            return (T) value;
+        }
+        FutureTask<Object> flight = new FutureTask<>(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                Object value = delegate.get(key, ABSENT);
+                if (value != ABSENT) {
+                    return value;
+                }
+                final Object made = lazyValue.get();
+                return delegate.hardGet(key, new Do.Make<Object>() {
+                    @Override
+                    public Object get() {
+                        return made;
+                    }
+                });
+            }
+        });
+        FutureTask<Object> current = flights.putIfAbsent(key, flight);
+        if (current == null) {
+            try {
+                flight.run();
+            } finally {
+                flights.remove(key, flight);
+            }
+            current = flight;
+        }
+        return (T) join(current);
+    }
+
+    @Override
+    public void clear(String key) {
+        delegate.clear(key);
+    }
+
+    private static Object join(FutureTask<Object> flight) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return flight.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
@@ -14,10 +14,11 @@ import java.util.concurrent.TimeUnit;
  *
  * @param <T> The type of the value
  */
-public class Wait<T> implements Do.Make<T> {
+public class Wait<T> extends Completion implements Do.Make<T> {
+
+    private static final int READY = 2;
 
     private final long timeout;
-    private boolean ready = false;
     private T value;
 
     public Wait(long timeout, TimeUnit unit) {
@@ -32,42 +33,30 @@ public class Wait<T> implements Do.Make<T> {
         this(millis, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * @return the value, or null if the timeout elapsed or the thread was
+     * interrupted before the value was set. The interrupt flag is set again
+     * in the latter case.
+     */
     @Override
     public T get() {
-        boolean timed = timeout > 0;
-        long remaining = timeout;
-        while (true) {
-            if (ready || (timed && remaining <= 0)) {
+        try {
+            if (await(timeout > 0, timeout)) {
                 return value;
-            } else synchronized (this) {
-                try {
-                    if (!timed) {
-                        wait();
-                    } else {
-                        long start = System.nanoTime();
-                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
-                        long elapsed = System.nanoTime() - start;
-                        remaining -= elapsed;
-                    }
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                    return null;
-                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        return null;
     }
 
     /**
      * Sets the value. Only the first call works, subsequent calls do nothing.
      */
     public void set(T value) {
-        if (ready) {
-            return;
-        }
-        synchronized (this) {
+        if (claim()) {
             this.value = value;
-            ready = true;
-            notifyAll();
+            settle(READY);
         }
     }
 
@@ -0,0 +1,45 @@
+package ph.codeia.run;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+/**
+ * An executor and runner that start every task in a new virtual thread.
+ *
+ * Virtual threads are cheap to create and to block, so actions that call
+ * {@code Future#get()} or wait on a {@link ph.codeia.values.Wait} do not tie
+ * up an OS thread while waiting. This is the version loaded by Java 21 and
+ * above from the multi-release jar.
+ *
+ * @see ph.codeia.arch.sm.Machine.Builder#onVirtualThreads()
+ */
+public final class VirtualThreads {
+
+    private static final ThreadFactory VIRTUAL = Thread.ofVirtual()
+            .name("vanilla-virtual-", 1)
+            .factory();
+
+    /**
+     * Runs each task in a new virtual thread.
+     */
+    public static final Executor EXECUTOR = task -> VIRTUAL.newThread(task).start();
+
+    /**
+     * Runs blocks in the {@link #EXECUTOR}.
+     */
+    public static final Runner RUNNER = new ExecutorContext(EXECUTOR);
+
+    /**
+     * @return true if the tasks run in virtual threads.
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    private VirtualThreads() {}
+
+}
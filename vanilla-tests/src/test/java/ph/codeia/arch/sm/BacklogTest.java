@@ -0,0 +1,153 @@
+package ph.codeia.arch.sm;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class BacklogTest {
+
+    private static final ExecutorService E = Executors.newSingleThreadExecutor();
+
+    @AfterClass
+    public static void tearDown() {
+        E.shutdown();
+    }
+
+    @Test
+    public void straw_man() {
+        Backlog backlog = new Backlog();
+        AtomicInteger calls = new AtomicInteger(0);
+        backlog.whenIdle(calls::incrementAndGet);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void blocks_queued_while_busy_run_after_the_last_work_is_done() {
+        Backlog backlog = new Backlog();
+        AtomicInteger calls = new AtomicInteger(0);
+        backlog.started();
+        backlog.started();
+        backlog.whenIdle(calls::incrementAndGet);
+        backlog.whenIdle(calls::incrementAndGet);
+        backlog.done();
+        assertEquals(0, calls.get());
+        backlog.done();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void blocks_are_called_only_once() {
+        Backlog backlog = new Backlog();
+        AtomicInteger calls = new AtomicInteger(0);
+        backlog.started();
+        backlog.whenIdle(calls::incrementAndGet);
+        backlog.done();
+        backlog.started();
+        backlog.done();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void work_started_by_an_idle_block_delays_the_rest() {
+        Backlog backlog = new Backlog();
+        List<String> order = new ArrayList<>();
+        backlog.started();
+        backlog.whenIdle(() -> {
+            order.add("first");
+            backlog.started();
+        });
+        backlog.whenIdle(() -> order.add("second"));
+        backlog.done();
+        assertEquals(Arrays.asList("first"), order);
+        order.add("work done");
+        backlog.done();
+        assertEquals(Arrays.asList("first", "work done", "second"), order);
+    }
+
+    @Test(timeout = 1000)
+    public void idle_blocks_never_run_at_the_same_time() throws InterruptedException {
+        Backlog backlog = new Backlog();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Thread> second = new AtomicReference<>();
+        E.execute(() -> backlog.whenIdle(() -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                fail("interrupted");
+            }
+        }));
+        entered.await();
+        backlog.whenIdle(() -> {
+            second.set(Thread.currentThread());
+            done.countDown();
+        });
+        assertNull(second.get());
+        release.countDown();
+        done.await();
+        assertNotSame(Thread.currentThread(), second.get());
+    }
+
+    @Test
+    public void a_throwing_block_does_not_stop_the_others() {
+        Backlog backlog = new Backlog();
+        AtomicInteger calls = new AtomicInteger(0);
+        backlog.started();
+        backlog.whenIdle(() -> {
+            throw new IllegalStateException("boom");
+        });
+        backlog.whenIdle(calls::incrementAndGet);
+        try {
+            backlog.done();
+            fail("should be unreachable");
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        assertEquals(1, calls.get());
+        backlog.whenIdle(calls::incrementAndGet);
+        assertEquals(2, calls.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void done_without_started_is_an_error() {
+        new Backlog().done();
+    }
+
+    @Test(timeout = 1000)
+    public void await_blocks_until_the_last_work_is_done() throws InterruptedException {
+        Backlog backlog = new Backlog();
+        CountDownLatch started = new CountDownLatch(1);
+        backlog.started();
+        E.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                fail("interrupted");
+            }
+            backlog.done();
+        });
+        started.await();
+        backlog.await();
+        AtomicInteger calls = new AtomicInteger(0);
+        backlog.whenIdle(calls::incrementAndGet);
+        assertEquals(1, calls.get());
+    }
+
+}
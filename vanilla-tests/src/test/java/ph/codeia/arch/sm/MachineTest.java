@@ -4,11 +4,15 @@ import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.values.Do;
 
 import static org.junit.Assert.*;
 
@@ -167,6 +171,94 @@ public class MachineTest {
         test.apply((s, r) -> s.expect(111));
     }
 
+    @Test
+    public void batched_actions_are_folded_in_order() {
+        test.applyBatch(inc(1), (s, r) -> s.expect(1), inc(10), (s, r) -> s.expect(11));
+        test.applyAll(Arrays.asList(inc(100), inc(1000)));
+        test.apply((s, r) -> s.expect(1111));
+    }
+
+    @Test
+    public void a_throwing_action_does_not_stop_the_rest_of_the_batch() {
+        try {
+            test.applyBatch(
+                    inc(1),
+                    (s, r) -> {
+                        throw new IllegalStateException("boom");
+                    },
+                    (s, r) -> s.plus(inc(10)));
+            fail("should be unreachable");
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        test.apply((s, r) -> s.expect(11));
+    }
+
+    @Test
+    public void batched_actions_get_enqueued_when_applied_while_stopped() {
+        test.stop();
+        test.applyBatch(inc(1), inc(10));
+        assertEquals(0, test.machine.state().counter);
+        test.start();
+        assertEquals(11, test.machine.state().counter);
+    }
+
+    @Test(timeout = 1000)
+    public void futures_queued_by_a_batch_are_dispatched_once() throws InterruptedException {
+        Machine.Bound<State, Action, MachineTest> bg =
+                new Machine.Bound<>(BG, this, new Impl<>(new State()));
+        CountDownLatch done = new CountDownLatch(2);
+        bg.applyBatch((s, r) -> s.async(() -> (s1, r1) -> {
+            s1.counter += 1;
+            done.countDown();
+            return s1;
+        }), (s, r) -> s.async(() -> (s1, r1) -> {
+            s1.counter += 10;
+            done.countDown();
+            return s1;
+        }));
+        done.await();
+        assertEquals(11, bg.machine.state().counter);
+    }
+
+    @Test(timeout = 1000)
+    public void callback_actions_are_applied_when_the_callback_is_called()
+            throws InterruptedException {
+        Machine.Bound<State, Action, MachineTest> bg =
+                new Machine.Bound<>(BG, this, new Impl<>(new State()));
+        AtomicReference<Do.Just<Action>> callback = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        bg.apply((s, r) -> s.async(callback::set));
+        assertEquals(0, bg.machine.state().counter);
+        callback.get().got((s, r) -> {
+            s.counter += 1;
+            done.countDown();
+            return s;
+        });
+        done.await();
+        assertEquals(1, bg.machine.state().counter);
+    }
+
+    @Test
+    public void callback_actions_do_not_use_the_worker() {
+        Machine.Bound<State, Action, MachineTest> never = new Machine.Bound<>(
+                runnable -> fail("should not be called"),
+                this, new Impl<>(new State()));
+        never.apply((s, r) -> s.async(next -> next.got(inc(1))));
+        assertEquals(1, never.machine.state().counter);
+    }
+
+    @Test
+    public void deferred_actions_that_finish_while_stopped_get_applied_when_started() {
+        AtomicReference<Do.Just<Action>> callback = new AtomicReference<>();
+        test.apply((s, r) -> s.async(callback::set));
+        test.stop();
+        callback.get().got(inc(1));
+        assertEquals(0, test.machine.state().counter);
+        test.start();
+        assertEquals(1, test.machine.state().counter);
+    }
+
     @Test(timeout = 1000)
     public void multiple_queued_async_actions_run_only_once() throws InterruptedException {
         Machine.Bound<State, Action, MachineTest> bg =
@@ -185,4 +277,88 @@ public class MachineTest {
         done.await();
         bg.apply((s, r) -> s.expect(111));
     }
+
+    @Test(timeout = 1000)
+    public void builder_binds_async_actions_to_the_worker() throws InterruptedException {
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Machine.Bound<State, Action, MachineTest> bound =
+                new Machine.Builder<State, Action, MachineTest>(new State()) {
+                    @Override
+                    public Machine<State, Action, MachineTest> build() {
+                        return new Impl<>(state);
+                    }
+                }.onVirtualThreads().build(this);
+        bound.apply((s, r) -> s.async(() -> {
+            worker.set(Thread.currentThread());
+            return (s1, r1) -> {
+                done.countDown();
+                return s1;
+            };
+        }));
+        done.await();
+        assertNotNull(worker.get());
+        assertNotSame(Thread.currentThread(), worker.get());
+    }
+
+    @Test(timeout = 1000)
+    public void cancelled_async_actions_are_interrupted_and_never_applied()
+            throws InterruptedException {
+        Machine.Bound<State, Action, MachineTest> bg =
+                new Machine.Bound<>(BG, this, new Impl<>(new State()));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        bg.apply((s, r) -> s.async(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return inc(1);
+        }));
+        started.await();
+        bg.cancel();
+        interrupted.await();
+        CountDownLatch done = new CountDownLatch(1);
+        bg.apply((s, r) -> s.async(() -> (s1, r1) -> {
+            s1.counter += 10;
+            done.countDown();
+            return s1;
+        }));
+        done.await();
+        assertEquals(10, bg.machine.state().counter);
+    }
+
+    @Test(timeout = 1000)
+    public void start_action_waits_for_the_actions_in_flight() throws InterruptedException {
+        Machine.Bound<State, Action, MachineTest> bg =
+                new Machine.Bound<>(BG, this, new Impl<>(new State()));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        bg.apply((s, r) -> s.async(() -> {
+            release.await();
+            return inc(1);
+        }));
+        bg.start((s, r) -> {
+            s.expect(1);
+            s.counter += 10;
+            done.countDown();
+            return s;
+        });
+        assertEquals(0, bg.machine.state().counter);
+        release.countDown();
+        done.await();
+        assertEquals(11, bg.machine.state().counter);
+    }
+
+    @Test
+    public void cancelling_on_the_immediate_worker_does_not_interrupt_the_caller() {
+        test.apply((s, r) -> s.async(() -> {
+            test.cancel();
+            return inc(1);
+        }));
+        assertFalse(Thread.interrupted());
+        assertEquals(0, test.machine.state().counter);
+    }
 }
@@ -0,0 +1,214 @@
+package ph.codeia.arch.sm;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class MailboxMachineTest {
+
+    interface Action extends Sm.Action<State, Action, MailboxMachineTest> {}
+
+    static class State extends RootState<State, Action> {
+        final List<Object> log = new ArrayList<>();
+    }
+
+    static final ExecutorService MAIN = Executors.newSingleThreadExecutor();
+
+    @AfterClass
+    public static void tearDown() {
+        MAIN.shutdown();
+    }
+
+    static Action log(Object entry) {
+        return (s, c) -> {
+            s.log.add(entry);
+            return s;
+        };
+    }
+
+    static Action hit(CountDownLatch done) {
+        return (s, c) -> {
+            done.countDown();
+            return s;
+        };
+    }
+
+    private MailboxMachine<State, Action, MailboxMachineTest> make(int capacity, int batchSize) {
+        MailboxMachine<State, Action, MailboxMachineTest> machine =
+                new MailboxMachine<>(MAIN, new State(), null, capacity, batchSize);
+        machine.start(this);
+        return machine;
+    }
+
+    private void await(MailboxMachine<State, Action, MailboxMachineTest> machine)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        machine.apply(Machine.IMMEDIATE, this, hit(done));
+        done.await();
+    }
+
+    private CountDownLatch blockMain() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MAIN.execute(() -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                fail("interrupted");
+            }
+        });
+        blocked.await();
+        return release;
+    }
+
+    @Test(timeout = 1000)
+    public void straw_man() throws InterruptedException {
+        MailboxMachine<State, Action, MailboxMachineTest> machine = make(1024, 64);
+        machine.apply(Machine.IMMEDIATE, this, log(1));
+        machine.apply(Machine.IMMEDIATE, this, log(2));
+        machine.applyBatch(Machine.IMMEDIATE, this, log(3), log(4));
+        await(machine);
+        assertEquals(Arrays.<Object>asList(1, 2, 3, 4), machine.state().log);
+    }
+
+    @Test(timeout = 1000)
+    public void actions_from_one_thread_are_folded_in_order() throws InterruptedException {
+        MailboxMachine<State, Action, MailboxMachineTest> machine = make(4, 3);
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            machine.apply(Machine.IMMEDIATE, this, log(i));
+            expected.add(i);
+        }
+        await(machine);
+        assertEquals(expected, machine.state().log);
+    }
+
+    @Test(timeout = 5000)
+    public void bursts_from_many_threads_keep_per_thread_order() throws InterruptedException {
+        MailboxMachine<State, Action, MailboxMachineTest> machine = make(8, 4);
+        await(machine);
+        int producers = 4;
+        int perProducer = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    fail("interrupted");
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    machine.apply(Machine.IMMEDIATE, this, log(new int[] {id, i}));
+                }
+                finished.countDown();
+            }).start();
+        }
+        start.countDown();
+        finished.await();
+        await(machine);
+        List<Object> log = machine.state().log;
+        assertEquals(producers * perProducer, log.size());
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (Object o : log) {
+            int[] entry = (int[]) o;
+            assertEquals(last[entry[0]] + 1, entry[1]);
+            last[entry[0]] = entry[1];
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void drain_yields_the_main_thread_after_each_batch() throws InterruptedException {
+        MailboxMachine<State, Action, MailboxMachineTest> machine = make(1024, 2);
+        CountDownLatch release = blockMain();
+        for (int i = 0; i < 6; i++) {
+            machine.apply(Machine.IMMEDIATE, this, log(i));
+        }
+        MAIN.execute(() -> machine.state().log.add("other task"));
+        release.countDown();
+        await(machine);
+        assertEquals(
+                Arrays.<Object>asList(0, 1, "other task", 2, 3, 4, 5),
+                machine.state().log);
+    }
+
+    @Test(timeout = 1000)
+    public void spilled_actions_are_folded_in_order() throws InterruptedException {
+        MailboxMachine<State, Action, MailboxMachineTest> machine = make(2, 64);
+        await(machine);
+        CountDownLatch done = new CountDownLatch(1);
+        machine.apply(Machine.IMMEDIATE, this, (s, c) -> {
+            for (int i = 0; i < 5; i++) {
+                machine.apply(Machine.IMMEDIATE, this, log(i));
+            }
+            machine.apply(Machine.IMMEDIATE, this, hit(done));
+            s.log.add("outer");
+            return s;
+        });
+        done.await();
+        assertEquals(Arrays.<Object>asList("outer", 0, 1, 2, 3, 4), machine.state().log);
+    }
+
+    @Test(timeout = 1000)
+    public void a_throwing_action_does_not_stop_the_machine() throws InterruptedException {
+        MailboxMachine<State, Action, MailboxMachineTest> machine = make(1024, 64);
+        machine.apply(Machine.IMMEDIATE, this, (s, c) -> {
+            throw new IllegalStateException("expected by the test");
+        });
+        machine.apply(Machine.IMMEDIATE, this, log(1));
+        await(machine);
+        assertEquals(Arrays.<Object>asList(1), machine.state().log);
+    }
+
+    @Test(timeout = 1000)
+    public void producers_wait_while_the_ring_is_full() throws InterruptedException {
+        MailboxMachine<State, Action, MailboxMachineTest> machine = make(2, 64);
+        await(machine);
+        CountDownLatch release = blockMain();
+        CountDownLatch produced = new CountDownLatch(1);
+        new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                machine.apply(Machine.IMMEDIATE, this, log(i));
+            }
+            produced.countDown();
+        }).start();
+        assertFalse(produced.await(50, TimeUnit.MILLISECONDS));
+        release.countDown();
+        produced.await();
+        await(machine);
+        assertEquals(Arrays.<Object>asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), machine.state().log);
+    }
+
+    @Test(timeout = 1000)
+    public void main_thread_never_waits_for_a_full_ring_even_before_the_first_drain()
+            throws InterruptedException {
+        MailboxMachine<State, Action, MailboxMachineTest> machine = make(2, 64);
+        CountDownLatch applied = new CountDownLatch(1);
+        MAIN.execute(() -> {
+            for (int i = 0; i < 5; i++) {
+                machine.apply(Machine.IMMEDIATE, this, log(i));
+            }
+            applied.countDown();
+        });
+        applied.await();
+        await(machine);
+        assertEquals(Arrays.<Object>asList(0, 1, 2, 3, 4), machine.state().log);
+    }
+
+}
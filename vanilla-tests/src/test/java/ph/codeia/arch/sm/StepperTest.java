@@ -0,0 +1,68 @@
+package ph.codeia.arch.sm;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.values.Do;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class StepperTest {
+
+    interface Action extends Sm.Action<State, Action, StepperTest> {}
+
+    static class State extends RootState<State, Action> {
+        int counter = 0;
+    }
+
+    static Action inc(int n) {
+        return (s, c) -> s.apply(() -> s.counter += n);
+    }
+
+    @Test
+    public void straw_man() {
+        Stepper<State, Action, StepperTest> stepper = new Stepper<>(new State());
+        stepper.apply(this, (s, c) -> s.async(() -> inc(1)).plus(inc(10)));
+        assertEquals(0, stepper.state().counter);
+        assertTrue(stepper.step(this));
+        assertEquals(1, stepper.state().counter);
+        assertTrue(stepper.step(this));
+        assertEquals(11, stepper.state().counter);
+        assertFalse(stepper.step(this));
+    }
+
+    @Test(timeout = 1000)
+    public void pending_deferred_actions_are_skipped() {
+        Stepper<State, Action, StepperTest> stepper = new Stepper<>(new State());
+        AtomicReference<Do.Just<Action>> callback = new AtomicReference<>();
+        stepper.apply(this, (s, c) -> s.async(callback::set).plus(inc(10)));
+        assertTrue(stepper.step(this));
+        assertEquals(10, stepper.state().counter);
+        assertFalse(stepper.step(this));
+        callback.get().got(inc(1));
+        assertTrue(stepper.step(this));
+        assertEquals(11, stepper.state().counter);
+        assertFalse(stepper.step(this));
+    }
+
+    @Test(timeout = 1000)
+    public void drain_stops_at_pending_deferred_actions() {
+        Stepper<State, Action, StepperTest> stepper = new Stepper<>(new State());
+        AtomicReference<Do.Just<Action>> callback = new AtomicReference<>();
+        stepper.apply(this, (s, c) -> s
+                .plus(inc(1))
+                .async(callback::set)
+                .plus(inc(10)));
+        stepper.drain(this);
+        assertEquals(11, stepper.state().counter);
+        callback.get().got(inc(100));
+        stepper.drain(this);
+        assertEquals(111, stepper.state().counter);
+    }
+
+}
@@ -0,0 +1,125 @@
+package ph.codeia.run;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.values.Do;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class AffineContextTest {
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor();
+    private static final ExecutorService MAIN = Executors.newSingleThreadExecutor();
+
+    @AfterClass
+    public static void tearDown() {
+        WORKER.shutdown();
+        MAIN.shutdown();
+    }
+
+    static class Counting implements Executor {
+        final AtomicInteger count = new AtomicInteger();
+        final Executor delegate;
+
+        Counting(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            count.incrementAndGet();
+            delegate.execute(command);
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void straw_man() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<String> result = new AtomicReference<>();
+        Runner r = new AffineContext(WORKER);
+        r.<String>apply(next -> next.got("foo")).begin(value -> {
+            result.set(value);
+            done.countDown();
+        });
+        done.await();
+        assertEquals("foo", result.get());
+    }
+
+    @Test(timeout = 1000)
+    public void consecutive_steps_in_the_same_context_are_submitted_once()
+            throws InterruptedException {
+        Counting worker = new Counting(WORKER);
+        Runner r = new AffineContext(worker);
+        CountDownLatch done = new CountDownLatch(1);
+        Do.Continue<Integer, Integer> step = r.apply((Integer n, Do.Just<Integer> next) ->
+                next.got(n + 1));
+        Seq.<Integer>of(r.apply(next -> next.got(0)))
+                .pipe(step).pipe(step).pipe(step)
+                .begin(n -> {
+                    assertEquals(3, (int) n);
+                    done.countDown();
+                });
+        done.await();
+        assertEquals(1, worker.count.get());
+    }
+
+    @Test(timeout = 1000)
+    public void plain_executor_context_submits_every_step() throws InterruptedException {
+        Counting worker = new Counting(WORKER);
+        Runner r = new ExecutorContext(worker);
+        CountDownLatch done = new CountDownLatch(1);
+        Do.Continue<Integer, Integer> step = r.apply((Integer n, Do.Just<Integer> next) ->
+                next.got(n + 1));
+        Seq.<Integer>of(r.apply(next -> next.got(0)))
+                .pipe(step).pipe(step).pipe(step)
+                .begin(n -> done.countDown());
+        done.await();
+        assertEquals(4, worker.count.get());
+    }
+
+    @Test(timeout = 1000)
+    public void different_contexts_still_hop() throws InterruptedException {
+        Counting worker = new Counting(WORKER);
+        Counting main = new Counting(MAIN);
+        Runner r = Interleave.affine(worker, main);
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> log = new ArrayList<>();
+        r.<String>apply(next -> next.got("foo")).begin(value -> {
+            log.add(value);
+            done.countDown();
+        });
+        done.await();
+        assertEquals(Arrays.asList("foo"), log);
+        assertEquals(1, worker.count.get());
+        assertEquals(1, main.count.get());
+    }
+
+    @Test(timeout = 1000)
+    public void interleave_inlines_the_consumer_when_already_in_main()
+            throws InterruptedException {
+        Counting worker = new Counting(WORKER);
+        Counting main = new Counting(MAIN);
+        Runner r = Interleave.affine(worker, main);
+        CountDownLatch done = new CountDownLatch(1);
+        r.run((String outer) -> r.run((String inner) -> done.countDown()).got("y")).got("x");
+        done.await();
+        assertEquals(0, worker.count.get());
+        assertEquals(1, main.count.get());
+    }
+
+}
@@ -0,0 +1,194 @@
+package ph.codeia.run;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.values.Do;
+import ph.codeia.values.SimpleStore;
+import ph.codeia.values.Store;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class AsyncMemoizeTest {
+
+    private static final ExecutorService BG = Executors.newSingleThreadExecutor();
+
+    @AfterClass
+    public static void tearDown() {
+        BG.shutdown();
+    }
+
+    private Store cache;
+
+    @Before
+    public void setup() {
+        cache = new SimpleStore();
+    }
+
+    @Test
+    public void straw_man() {
+        LabelledRunner r = new AsyncMemoize(cache);
+        AtomicInteger count = new AtomicInteger();
+        AtomicReference<String> result = new AtomicReference<>();
+        Do.Execute<String> block = r.label("key", next -> {
+            count.incrementAndGet();
+            next.got("FOO");
+        });
+        block.begin(result::set);
+        block.begin(result::set);
+        assertEquals("FOO", result.get());
+        assertEquals(1, count.get());
+        assertEquals("FOO", cache.get("key", null));
+    }
+
+    @Test
+    public void callers_arriving_while_pending_share_the_result() {
+        LabelledRunner r = new AsyncMemoize(cache);
+        AtomicInteger count = new AtomicInteger();
+        AtomicReference<Do.Just<String>> callback = new AtomicReference<>();
+        Do.Execute<String> block = r.label("key", next -> {
+            count.incrementAndGet();
+            callback.set(next);
+        });
+        List<String> results = new ArrayList<>();
+        block.begin(results::add);
+        block.begin(results::add);
+        block.begin(results::add);
+        assertTrue(results.isEmpty());
+        callback.get().got("done");
+        assertEquals(Arrays.asList("done", "done", "done"), results);
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void block_is_never_called_if_the_cache_already_has_a_stored_value() {
+        LabelledRunner r = new AsyncMemoize(cache);
+        cache.put("key", "NOPE");
+        AtomicReference<String> result = new AtomicReference<>();
+        r.label("key", (String value, Do.Just<String> next) -> {
+            fail("should not be called");
+        }).then("foo", result::set);
+        assertEquals("NOPE", result.get());
+    }
+
+    @Test(timeout = 1000)
+    public void async_block_does_not_block_the_caller() throws InterruptedException {
+        LabelledRunner r = new AsyncMemoize(cache);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        Do.Execute<String> block = r.label("key", next -> BG.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                fail("interrupted");
+            }
+            next.got("async");
+        }));
+        AtomicReference<String> first = new AtomicReference<>();
+        AtomicReference<String> second = new AtomicReference<>();
+        block.begin(value -> {
+            first.set(value);
+            done.countDown();
+        });
+        block.begin(value -> {
+            second.set(value);
+            done.countDown();
+        });
+        release.countDown();
+        done.await();
+        assertEquals("async", first.get());
+        assertEquals("async", second.get());
+    }
+
+    @Test
+    public void block_that_throws_is_retried_by_the_next_caller() {
+        LabelledRunner r = new AsyncMemoize(cache);
+        AtomicInteger count = new AtomicInteger();
+        Do.Execute<String> block = r.label("key", next -> {
+            if (count.incrementAndGet() == 1) {
+                throw new IllegalStateException();
+            }
+            next.got("ok");
+        });
+        try {
+            block.begin(value -> fail("should not be called"));
+            fail("should be unreachable");
+        } catch (IllegalStateException ignored) {
+        }
+        AtomicReference<String> result = new AtomicReference<>();
+        block.begin(result::set);
+        assertEquals("ok", result.get());
+    }
+
+    @Test
+    public void block_that_throws_an_error_is_retried_by_the_next_caller() {
+        LabelledRunner r = new AsyncMemoize(cache);
+        AtomicInteger count = new AtomicInteger();
+        Do.Execute<String> block = r.label("key", next -> {
+            if (count.incrementAndGet() == 1) {
+                throw new StackOverflowError();
+            }
+            next.got("ok");
+        });
+        try {
+            block.begin(value -> fail("should not be called"));
+            fail("should be unreachable");
+        } catch (StackOverflowError ignored) {
+        }
+        AtomicReference<String> result = new AtomicReference<>();
+        block.begin(result::set);
+        assertEquals("ok", result.get());
+    }
+
+    @Test(timeout = 1000)
+    public void callers_waiting_on_a_block_that_throws_are_not_dropped()
+            throws InterruptedException {
+        LabelledRunner r = new AsyncMemoize(cache);
+        AtomicInteger count = new AtomicInteger();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch threw = new CountDownLatch(1);
+        Do.Execute<String> block = r.label("key", next -> {
+            if (count.incrementAndGet() == 1) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    fail("interrupted");
+                }
+                throw new IllegalStateException();
+            }
+            next.got("ok");
+        });
+        new Thread(() -> {
+            try {
+                block.begin(value -> fail("should not be called"));
+            } catch (IllegalStateException e) {
+                threw.countDown();
+            }
+        }).start();
+        entered.await();
+        AtomicReference<String> result = new AtomicReference<>();
+        block.begin(result::set);
+        assertNull(result.get());
+        release.countDown();
+        threw.await();
+        assertEquals("ok", result.get());
+        assertEquals(2, count.get());
+    }
+
+}
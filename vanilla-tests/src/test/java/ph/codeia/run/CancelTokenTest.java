@@ -0,0 +1,110 @@
+package ph.codeia.run;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ph.codeia.signal.Channel;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class CancelTokenTest {
+
+    @Test
+    public void straw_man() {
+        CancelToken token = new CancelToken();
+        AtomicInteger calls = new AtomicInteger(0);
+        token.onCancel(calls::incrementAndGet);
+        assertFalse(token.isCancelled());
+        token.cancel();
+        assertTrue(token.isCancelled());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void callbacks_are_called_at_most_once() {
+        CancelToken token = new CancelToken();
+        AtomicInteger calls = new AtomicInteger(0);
+        token.onCancel(calls::incrementAndGet);
+        token.cancel();
+        token.cancel();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void callback_is_called_immediately_when_already_cancelled() {
+        CancelToken token = new CancelToken();
+        token.cancel();
+        AtomicInteger calls = new AtomicInteger(0);
+        token.onCancel(calls::incrementAndGet);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void unlinked_callbacks_are_not_called() {
+        CancelToken token = new CancelToken();
+        AtomicInteger calls = new AtomicInteger(0);
+        Channel.Link link = token.onCancel(calls::incrementAndGet);
+        link.unlink();
+        token.cancel();
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void cancelling_the_parent_cancels_the_children() {
+        CancelToken parent = new CancelToken();
+        CancelToken child = parent.child();
+        CancelToken grandchild = child.child();
+        parent.cancel();
+        assertTrue(child.isCancelled());
+        assertTrue(grandchild.isCancelled());
+    }
+
+    @Test
+    public void cancelling_a_child_does_not_cancel_the_parent() {
+        CancelToken parent = new CancelToken();
+        CancelToken child = parent.child();
+        CancelToken sibling = parent.child();
+        child.cancel();
+        assertTrue(child.isCancelled());
+        assertFalse(parent.isCancelled());
+        assertFalse(sibling.isCancelled());
+    }
+
+    @Test
+    public void detached_children_are_not_cancelled_by_the_parent() {
+        CancelToken parent = new CancelToken();
+        CancelToken child = parent.child();
+        child.detach();
+        parent.cancel();
+        assertFalse(child.isCancelled());
+        child.cancel();
+        assertTrue(child.isCancelled());
+    }
+
+    @Test
+    public void the_same_block_can_be_registered_and_unlinked_separately() {
+        CancelToken token = new CancelToken();
+        AtomicInteger calls = new AtomicInteger(0);
+        Runnable block = calls::incrementAndGet;
+        token.onCancel(block);
+        token.onCancel(block).unlink();
+        token.onCancel(block);
+        token.cancel();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void none_is_never_cancelled() {
+        AtomicInteger calls = new AtomicInteger(0);
+        CancelToken.NONE.onCancel(calls::incrementAndGet);
+        CancelToken.NONE.cancel();
+        assertFalse(CancelToken.NONE.isCancelled());
+        assertEquals(0, calls.get());
+    }
+
+}
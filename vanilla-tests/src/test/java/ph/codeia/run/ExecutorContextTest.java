@@ -122,4 +122,29 @@ public class ExecutorContextTest {
         done.await();
     }
 
+    @Test(timeout = 1000)
+    public void blocks_are_dropped_once_the_token_is_cancelled() throws InterruptedException {
+        CancelToken token = new CancelToken();
+        Runner r = new ExecutorContext(EXEC, token);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger(0);
+        EXEC.execute(() -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                fail("interrupted");
+            }
+        });
+        blocked.await();
+        r.run((Do.Just<Void>) value -> counter.incrementAndGet()).got(null);
+        token.cancel();
+        release.countDown();
+        CountDownLatch drained = new CountDownLatch(1);
+        EXEC.execute(drained::countDown);
+        drained.await();
+        assertEquals(0, counter.get());
+    }
+
 }
\ No newline at end of file
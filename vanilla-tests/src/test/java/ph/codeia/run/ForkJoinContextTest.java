@@ -0,0 +1,85 @@
+package ph.codeia.run;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.values.Do;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class ForkJoinContextTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void tearDown() {
+        POOL.shutdown();
+    }
+
+    @Test(timeout = 1000)
+    public void straw_man() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        Runner r = new ForkJoinContext(POOL);
+        r.<String>apply(next -> {
+            thread.set(Thread.currentThread());
+            next.got("foo");
+        }).begin(value -> done.countDown());
+        done.await();
+        assertTrue(thread.get() instanceof ForkJoinWorkerThread);
+    }
+
+    @Test(timeout = 1000)
+    public void synchronous_steps_stay_in_the_same_worker() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Set<Thread> threads = new HashSet<>();
+        Runner r = new ForkJoinContext(POOL);
+        Do.Continue<Integer, Integer> step = r.apply((Integer n, Do.Just<Integer> next) -> {
+            synchronized (threads) {
+                threads.add(Thread.currentThread());
+            }
+            next.got(n + 1);
+        });
+        Seq.<Integer>of(r.apply(next -> next.got(0)))
+                .pipe(step).pipe(step).pipe(step).pipe(step)
+                .begin(n -> {
+                    assertEquals(4, (int) n);
+                    done.countDown();
+                });
+        done.await();
+        assertEquals(1, threads.size());
+    }
+
+    @Test(timeout = 2000)
+    public void long_chains_are_forked_past_the_max_depth() throws InterruptedException {
+        int steps = 10_000;
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger result = new AtomicInteger();
+        Runner r = new ForkJoinContext(POOL, 8);
+        Do.Continue<Integer, Integer> step = r.apply((Integer n, Do.Just<Integer> next) ->
+                next.got(n + 1));
+        Seq<?, Integer> seq = Seq.of(r.apply((Do.Just<Integer> next) -> next.got(0)));
+        for (int i = 0; i < steps; i++) {
+            seq = seq.pipe(step);
+        }
+        seq.compile().begin(n -> {
+            result.set(n);
+            done.countDown();
+        });
+        done.await();
+        assertEquals(steps, result.get());
+    }
+
+}
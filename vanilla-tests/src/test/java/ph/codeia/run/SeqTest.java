@@ -3,11 +3,17 @@ package ph.codeia.run;
 import org.junit.AfterClass;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import ph.codeia.values.Do;
 import ph.codeia.values.Either;
@@ -178,4 +184,291 @@ public class SeqTest {
         assertEquals(3, count.get());
     }
 
+    @Test
+    public void compiled_seq_produces_the_same_value() {
+        AtomicReference<String> result = new AtomicReference<>();
+        Seq.<String> of(next -> {
+            next.got("foo");
+        }).<String> pipe((value, next) -> {
+            next.got(value + "bar");
+        }).<Integer> pipe((value, next) -> {
+            next.got(value.length());
+        }).<String> pipe((value, next) -> {
+            next.got("length=" + value);
+        }).compile().begin(result::set);
+        assertEquals("length=6", result.get());
+    }
+
+    @Test
+    public void compiled_seq_can_be_executed_multiple_times() {
+        AtomicInteger count = new AtomicInteger();
+        Seq.Compiled<Integer> seq = Seq.<Integer> of(next -> {
+            next.got(count.incrementAndGet());
+        }).<Integer> pipe((value, next) -> {
+            next.got(value * 10);
+        }).compile();
+        AtomicInteger result = new AtomicInteger();
+        for (int i = 1; i <= 5; i++) {
+            seq.begin(result::set);
+            assertEquals(i * 10, result.get());
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void compiled_seq_with_async_step_in_the_middle() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<String> result = new AtomicReference<>();
+        Seq.<String> of(next -> {
+            next.got("baz");
+        }).<String> pipe((value, next) -> EXEC.execute(() -> {
+            next.got("BAR" + value);
+        })).<String> pipe((value, next) -> {
+            next.got("foo" + value);
+        }).compile().begin(value -> {
+            result.set(value);
+            done.countDown();
+        });
+        done.await();
+        assertEquals("fooBARbaz", result.get());
+    }
+
+    @Test
+    public void compiled_seq_does_not_grow_the_stack() {
+        Seq<?, Integer> seq = Seq.of(next -> next.got(0));
+        for (int i = 0; i < 100_000; i++) {
+            seq = seq.pipe((value, next) -> next.got(value + 1));
+        }
+        AtomicInteger result = new AtomicInteger();
+        seq.compile().begin(result::set);
+        assertEquals(100_000, result.get());
+    }
+
+    @Test
+    public void compiled_seq_stops_when_a_step_does_not_call_back() {
+        AtomicInteger count = new AtomicInteger();
+        Seq.<Void> of(next -> {
+            count.incrementAndGet();
+            next.got(null);
+        }).<Void> pipe((value, next) -> {
+            count.incrementAndGet();
+        }).<Void> pipe((value, next) -> {
+            count.incrementAndGet();
+            next.got(null);
+        }).compile().begin();
+        assertEquals(2, count.get());
+    }
+
+    @Test(timeout = 1000)
+    public void all_joins_results_in_order() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicReference<List<Integer>> result = new AtomicReference<>();
+            Runner runner = new ExecutorContext(pool);
+            Seq.<Integer>all(runner,
+                    next -> sleepThen(30, () -> next.got(1)),
+                    next -> sleepThen(0, () -> next.got(2)),
+                    next -> sleepThen(15, () -> next.got(3))
+            ).begin(list -> {
+                result.set(list);
+                done.countDown();
+            });
+            done.await();
+            assertEquals(Arrays.asList(1, 2, 3), result.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void all_with_no_blocks_sends_an_empty_list() {
+        AtomicReference<List<Object>> result = new AtomicReference<>();
+        Seq.all(PassThrough.RUNNER, Collections.<Do.Execute<Object>>emptyList())
+                .begin(result::set);
+        assertEquals(Collections.emptyList(), result.get());
+    }
+
+    @Test
+    public void any_sends_only_the_first_result() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<String> result = new AtomicReference<>();
+        Seq.<String>any(PassThrough.RUNNER,
+                next -> {},
+                next -> next.got("second"),
+                next -> next.got("third")
+        ).begin(value -> {
+            calls.incrementAndGet();
+            result.set(value);
+        });
+        assertEquals("second", result.get());
+        assertEquals(1, calls.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void any_rejects_an_empty_list() {
+        Seq.any(PassThrough.RUNNER, Collections.<Do.Execute<String>>emptyList());
+    }
+
+    @Test(timeout = 1000)
+    public void parallel_map_preserves_order() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicReference<List<String>> result = new AtomicReference<>();
+            Seq.<List<Integer>>of(next -> next.got(Arrays.asList(40, 10, 30, 0)))
+                    .pipe(Seq.parallelMap(new ExecutorContext(pool),
+                            (Integer n, Do.Just<String> next) ->
+                                    sleepThen(n, () -> next.got("#" + n))))
+                    .begin(list -> {
+                        result.set(list);
+                        done.countDown();
+                    });
+            done.await();
+            assertEquals(Arrays.asList("#40", "#10", "#30", "#0"), result.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void cancelled_token_stops_the_remaining_steps() {
+        CancelToken token = new CancelToken();
+        AtomicInteger steps = new AtomicInteger(0);
+        AtomicBoolean done = new AtomicBoolean(false);
+        Seq.<String>of(next -> {
+            steps.incrementAndGet();
+            next.got("foo");
+        }).<String>pipe((value, next) -> {
+            steps.incrementAndGet();
+            token.cancel();
+            next.got(value + "bar");
+        }).<String>pipe((value, next) -> {
+            steps.incrementAndGet();
+            next.got(value + "baz");
+        }).begin(token, value -> done.set(true));
+        assertEquals(2, steps.get());
+        assertFalse(done.get());
+    }
+
+    @Test
+    public void token_cancelled_before_begin_runs_nothing() {
+        CancelToken token = new CancelToken();
+        token.cancel();
+        AtomicInteger steps = new AtomicInteger(0);
+        Seq.<String>of(next -> {
+            steps.incrementAndGet();
+            next.got("foo");
+        }).begin(token, value -> steps.incrementAndGet());
+        assertEquals(0, steps.get());
+    }
+
+    @Test(timeout = 1000)
+    public void timeout_passes_values_that_arrive_in_time() throws Exception {
+        AtomicReference<Do.Try<String>> result = new AtomicReference<>();
+        Seq.tryOf(Seq.timeout(100, TimeUnit.MILLISECONDS,
+                (Do.Execute<String>) next -> next.got("foo")))
+                .begin(result::set);
+        assertEquals("foo", result.get().get());
+    }
+
+    @Test(timeout = 1000)
+    public void timeout_fails_when_the_step_is_too_slow() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Do.Try<String>> result = new AtomicReference<>();
+        Seq.<String>of(next -> {})
+                .timeout(10, TimeUnit.MILLISECONDS)
+                .begin(value -> {
+                    result.set(value);
+                    done.countDown();
+                });
+        done.await();
+        try {
+            result.get().get();
+            fail("should be unreachable");
+        } catch (Exception e) {
+            assertTrue(e instanceof TimeoutException);
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void late_values_are_ignored_after_a_timeout() throws InterruptedException {
+        CountDownLatch timedOut = new CountDownLatch(1);
+        AtomicReference<Do.Just<String>> late = new AtomicReference<>();
+        AtomicInteger calls = new AtomicInteger(0);
+        Seq.<String>of(next -> next.got("foo"))
+                .pipe(Seq.timeout(10, TimeUnit.MILLISECONDS,
+                        (String value, Do.Just<String> next) -> late.set(next)))
+                .begin(value -> {
+                    calls.incrementAndGet();
+                    timedOut.countDown();
+                });
+        timedOut.await();
+        late.get().got("bar");
+        assertEquals(1, calls.get());
+    }
+
+    @Test(timeout = 1000)
+    public void a_slow_continuation_does_not_delay_other_timeouts() throws InterruptedException {
+        CountDownLatch fast = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Seq.<String>of(next -> {})
+                .timeout(5, TimeUnit.MILLISECONDS)
+                .begin(value -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        fail("interrupted");
+                    }
+                });
+        Seq.<String>of(next -> {})
+                .timeout(20, TimeUnit.MILLISECONDS)
+                .begin(value -> fast.countDown());
+        fast.await();
+        release.countDown();
+    }
+
+    @Test(timeout = 1000)
+    public void an_immediate_timeout_is_not_sent_from_the_caller_thread() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicReference<Thread> thread = new AtomicReference<>();
+            Seq.<String>of(next -> {})
+                    .timeout(0, TimeUnit.MILLISECONDS)
+                    .begin(value -> {
+                        thread.set(Thread.currentThread());
+                        done.countDown();
+                    });
+            done.await();
+            assertNotSame(Thread.currentThread(), thread.get());
+        }
+    }
+
+    @Test(timeout = 1000)
+    public void timeouts_are_sent_from_the_fallback_executor() throws InterruptedException {
+        ExecutorService fallback = Executors.newSingleThreadExecutor(r -> new Thread(r, "fallback"));
+        try {
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicReference<String> thread = new AtomicReference<>();
+            Seq.<String>of(next -> {})
+                    .timeout(5, TimeUnit.MILLISECONDS, fallback)
+                    .begin(value -> {
+                        thread.set(Thread.currentThread().getName());
+                        done.countDown();
+                    });
+            done.await();
+            assertEquals("fallback", thread.get());
+        } finally {
+            fallback.shutdown();
+        }
+    }
+
+    private static void sleepThen(long millis, Runnable block) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            fail("interrupted");
+        }
+        block.run();
+    }
+
 }
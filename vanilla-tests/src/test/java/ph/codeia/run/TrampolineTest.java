@@ -0,0 +1,105 @@
+package ph.codeia.run;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.values.Do;
+import ph.codeia.values.SimpleStore;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class TrampolineTest {
+
+    @Test
+    public void straw_man() {
+        AtomicReference<String> result = new AtomicReference<>();
+        Seq.<String> of(next -> {
+            next.got("foo");
+        }).<String> pipe((value, next) -> {
+            next.got(value + "bar");
+        }).trampolined().begin(result::set);
+        assertEquals("foobar", result.get());
+    }
+
+    @Test
+    public void long_synchronous_sequences_do_not_overflow_the_stack() {
+        Seq<?, Integer> seq = Seq.of(next -> next.got(0));
+        for (int i = 0; i < 100_000; i++) {
+            seq = seq.pipe((value, next) -> next.got(value + 1));
+        }
+        AtomicInteger result = new AtomicInteger();
+        seq.trampolined().begin(result::set);
+        assertEquals(100_000, result.get());
+    }
+
+    @Test
+    public void steps_may_call_back_more_than_once() {
+        List<Integer> results = new ArrayList<>();
+        Seq.<Integer> of(next -> {
+            next.got(1);
+            next.got(2);
+        }).<Integer> pipe((value, next) -> {
+            next.got(value * 10);
+        }).trampolined().begin(results::add);
+        assertEquals(Arrays.asList(10, 20), results);
+    }
+
+    @Test
+    public void nested_blocks_run_after_the_current_block_returns() {
+        List<String> events = new ArrayList<>();
+        Do.Just<String> inner = Trampoline.RUNNER.run(events::add);
+        Trampoline.RUNNER.run((String value) -> {
+            inner.got("inner");
+            events.add(value);
+        }).got("outer");
+        assertEquals(Arrays.asList("outer", "inner"), events);
+    }
+
+    @Test
+    public void a_block_that_throws_does_not_drop_the_queued_blocks() {
+        List<String> events = new ArrayList<>();
+        Do.Just<String> fails = Trampoline.RUNNER.run((String value) -> {
+            throw new IllegalStateException(value);
+        });
+        Do.Just<String> log = Trampoline.RUNNER.run(events::add);
+        try {
+            Trampoline.RUNNER.run((String value) -> {
+                fails.got("boom");
+                log.got("after");
+                events.add(value);
+            }).got("outer");
+            fail("should be unreachable");
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        assertEquals(Arrays.asList("outer", "after"), events);
+        log.got("next loop");
+        assertEquals(Arrays.asList("outer", "after", "next loop"), events);
+    }
+
+    @Test
+    public void can_be_used_as_memoize_delegate() {
+        LabelledRunner r = new Memoize(Trampoline.RUNNER, new SimpleStore());
+        AtomicInteger count = new AtomicInteger();
+        Do.Continue<String, String> mid = r.label("key", (value, next) -> {
+            count.incrementAndGet();
+            next.got(value + "bar");
+        });
+        AtomicReference<String> result = new AtomicReference<>();
+        Seq.<String> of(next -> {
+            next.got("foo");
+        }).pipe(mid).pipe(mid).pipe(mid).trampolined().begin(result::set);
+        assertEquals(1, count.get());
+        assertEquals("foobar", result.get());
+    }
+
+}
@@ -0,0 +1,67 @@
+package ph.codeia.run;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class VirtualThreadsTest {
+
+    @Test(timeout = 1000)
+    public void straw_man() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<String> result = new AtomicReference<>();
+        VirtualThreads.RUNNER.<String>apply(next -> next.got("foo")).begin(value -> {
+            result.set(value);
+            done.countDown();
+        });
+        done.await();
+        assertEquals("foo", result.get());
+    }
+
+    @Test(timeout = 1000)
+    public void runs_tasks_in_another_thread() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        VirtualThreads.EXECUTOR.execute(() -> {
+            thread.set(Thread.currentThread());
+            done.countDown();
+        });
+        done.await();
+        assertNotSame(Thread.currentThread(), thread.get());
+        assertEquals(VirtualThreads.isSupported(), !thread.get().getName().startsWith("vanilla-worker-"));
+    }
+
+    @Test(timeout = 2000)
+    public void blocking_tasks_do_not_starve_each_other() throws InterruptedException {
+        int n = 64;
+        CountDownLatch allBlocked = new CountDownLatch(n);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(n);
+        AtomicInteger finished = new AtomicInteger();
+        for (int i = 0; i < n; i++) {
+            VirtualThreads.EXECUTOR.execute(() -> {
+                allBlocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    fail("interrupted");
+                }
+                finished.incrementAndGet();
+                done.countDown();
+            });
+        }
+        allBlocked.await();
+        release.countDown();
+        done.await();
+        assertEquals(n, finished.get());
+    }
+
+}
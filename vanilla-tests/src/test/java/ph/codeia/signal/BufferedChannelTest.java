@@ -0,0 +1,164 @@
+package ph.codeia.signal;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class BufferedChannelTest {
+
+    private static final ExecutorService BG = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public static void tearDown() {
+        BG.shutdown();
+    }
+
+    static class Manual implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            for (Runnable r = tasks.poll(); r != null; r = tasks.poll()) {
+                r.run();
+            }
+        }
+    }
+
+    @Test
+    public void straw_man() {
+        Manual executor = new Manual();
+        List<String> received = new ArrayList<>();
+        Channel<String> ch = new BufferedChannel<>(executor, 8, BufferedChannel.Overflow.BLOCK);
+        ch.link(received::add);
+        ch.send("foo");
+        ch.send("bar");
+        assertTrue(received.isEmpty());
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(Arrays.asList("foo", "bar"), received);
+    }
+
+    @Test
+    public void drop_oldest_keeps_the_latest_messages() {
+        Manual executor = new Manual();
+        List<Integer> received = new ArrayList<>();
+        Channel<Integer> ch = new BufferedChannel<>(executor, 3, BufferedChannel.Overflow.DROP_OLDEST);
+        ch.link(received::add);
+        for (int i = 0; i < 6; i++) {
+            ch.send(i);
+        }
+        executor.runAll();
+        assertEquals(Arrays.asList(3, 4, 5), received);
+    }
+
+    @Test
+    public void drop_newest_keeps_the_earliest_messages() {
+        Manual executor = new Manual();
+        List<Integer> received = new ArrayList<>();
+        Channel<Integer> ch = new BufferedChannel<>(executor, 3, BufferedChannel.Overflow.DROP_NEWEST);
+        ch.link(received::add);
+        for (int i = 0; i < 6; i++) {
+            ch.send(i);
+        }
+        executor.runAll();
+        assertEquals(Arrays.asList(0, 1, 2), received);
+    }
+
+    @Test
+    public void conflate_only_delivers_the_latest_message() {
+        Manual executor = new Manual();
+        List<Integer> received = new ArrayList<>();
+        Channel<Integer> ch = new BufferedChannel<>(executor, 3, BufferedChannel.Overflow.CONFLATE);
+        ch.link(received::add);
+        for (int i = 0; i < 6; i++) {
+            ch.send(i);
+        }
+        executor.runAll();
+        ch.send(6);
+        executor.runAll();
+        assertEquals(Arrays.asList(5, 6), received);
+    }
+
+    @Test
+    public void null_messages_are_delivered() {
+        Manual executor = new Manual();
+        List<String> received = new ArrayList<>();
+        Channel<String> ch = new BufferedChannel<>(executor, 3, BufferedChannel.Overflow.BLOCK);
+        ch.link(received::add);
+        ch.send(null);
+        executor.runAll();
+        assertEquals(Collections.singletonList(null), received);
+    }
+
+    @Test
+    public void rest_of_the_buffer_is_delivered_after_a_listener_throws() {
+        Manual executor = new Manual();
+        List<Integer> received = new ArrayList<>();
+        Channel<Integer> ch = new BufferedChannel<>(executor, 8, BufferedChannel.Overflow.BLOCK);
+        ch.link(n -> {
+            if (n == 1) {
+                throw new IllegalStateException();
+            }
+            received.add(n);
+        });
+        ch.send(0);
+        ch.send(1);
+        ch.send(2);
+        try {
+            executor.runAll();
+            fail("should be unreachable");
+        } catch (IllegalStateException ignored) {
+        }
+        executor.runAll();
+        assertEquals(Arrays.asList(0, 2), received);
+    }
+
+    @Test(timeout = 1000)
+    public void block_waits_for_room_and_loses_nothing() throws InterruptedException {
+        int producers = 4;
+        int messages = 1000;
+        CountDownLatch done = new CountDownLatch(producers * messages);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        BufferedChannel<Integer> ch = new BufferedChannel<>(BG, 4, BufferedChannel.Overflow.BLOCK);
+        ch.link(n -> {
+            received.add(n);
+            done.countDown();
+        });
+        for (int p = 0; p < producers - 1; p++) {
+            int base = p * messages;
+            BG.execute(() -> {
+                for (int i = 0; i < messages; i++) {
+                    ch.send(base + i);
+                }
+            });
+        }
+        for (int i = 0; i < messages; i++) {
+            ch.send((producers - 1) * messages + i);
+        }
+        assertTrue(done.await(900, TimeUnit.MILLISECONDS));
+        assertEquals(producers * messages, received.size());
+        assertEquals(0, ch.pending());
+    }
+
+}
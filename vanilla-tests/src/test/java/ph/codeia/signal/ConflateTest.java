@@ -0,0 +1,114 @@
+package ph.codeia.signal;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class ConflateTest {
+
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor();
+
+    @AfterClass
+    public static void tearDown() {
+        TIMER.shutdown();
+    }
+
+    static class Manual implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        boolean runNext() {
+            Runnable r = tasks.poll();
+            if (r == null) {
+                return false;
+            }
+            r.run();
+            return true;
+        }
+    }
+
+    @Test
+    public void straw_man() {
+        Manual executor = new Manual();
+        List<Integer> received = new ArrayList<>();
+        Channel<Integer> ch = new Conflate<>(executor);
+        ch.link(received::add);
+        for (int i = 0; i < 100; i++) {
+            ch.send(i);
+        }
+        assertEquals(1, executor.tasks.size());
+        while (executor.runNext());
+        assertEquals(Collections.singletonList(99), received);
+    }
+
+    @Test
+    public void messages_sent_during_a_delivery_are_conflated_into_one_more_delivery() {
+        Manual executor = new Manual();
+        List<Integer> received = new ArrayList<>();
+        Channel<Integer> ch = new Conflate<>(executor);
+        ch.link(n -> {
+            received.add(n);
+            if (n == 0) {
+                ch.send(1);
+                ch.send(2);
+                ch.send(3);
+            }
+        });
+        ch.send(0);
+        while (executor.runNext());
+        assertEquals(Arrays.asList(0, 3), received);
+    }
+
+    @Test
+    public void idle_channel_schedules_again_on_the_next_send() {
+        Manual executor = new Manual();
+        List<String> received = new ArrayList<>();
+        Channel<String> ch = new Conflate<>(executor);
+        ch.link(received::add);
+        ch.send("a");
+        while (executor.runNext());
+        ch.send("b");
+        assertEquals(1, executor.tasks.size());
+        while (executor.runNext());
+        assertEquals(Arrays.asList("a", "b"), received);
+    }
+
+    @Test(timeout = 1000)
+    public void delivers_at_most_once_per_window() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        Channel<Integer> ch = new Conflate<>(TIMER, 100, TimeUnit.MILLISECONDS);
+        ch.link(n -> {
+            received.add(n);
+            done.countDown();
+        });
+        for (int i = 0; i < 1000; i++) {
+            ch.send(i);
+        }
+        done.await();
+        assertEquals(Collections.singletonList(999), received);
+    }
+
+}
@@ -0,0 +1,142 @@
+package ph.codeia.signal;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.values.Do;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class CopyOnWriteChannelTest {
+
+    private static final ExecutorService BG = Executors.newSingleThreadExecutor();
+
+    @AfterClass
+    public static void tearDown() {
+        BG.shutdown();
+    }
+
+    @Test
+    public void straw_man() {
+        AtomicReference<String> msg = new AtomicReference<>();
+        Channel<String> ch = new CopyOnWriteChannel<>();
+        ch.link(msg::set);
+        ch.send("foo");
+        assertEquals("foo", msg.get());
+    }
+
+    @Test
+    public void listeners_are_called_in_the_order_they_were_linked() {
+        List<Integer> order = new ArrayList<>();
+        Channel<Integer> ch = new CopyOnWriteChannel<>();
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            ch.link(x -> order.add(n));
+        }
+        ch.send(0);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+    }
+
+    @Test
+    public void stops_receiving_messages_when_unlinked() {
+        AtomicInteger msg1 = new AtomicInteger();
+        AtomicInteger msg2 = new AtomicInteger();
+        AtomicInteger msg3 = new AtomicInteger();
+        Channel<Integer> ch = new CopyOnWriteChannel<>();
+        ch.link(msg1::set);
+        Channel.Link l = ch.link(msg2::set);
+        ch.link(msg3::set);
+
+        ch.send(100);
+        l.unlink();
+        l.unlink();
+        ch.send(1024);
+
+        assertEquals(1024, msg1.get());
+        assertEquals(100, msg2.get());
+        assertEquals(1024, msg3.get());
+    }
+
+    @Test
+    public void linking_the_same_listener_twice_does_nothing() {
+        AtomicInteger count = new AtomicInteger();
+        Do.Just<Integer> listener = n -> count.incrementAndGet();
+        Channel<Integer> ch = new CopyOnWriteChannel<>();
+        ch.link(listener);
+        ch.link(listener);
+        ch.send(1);
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void unlink_all() {
+        int N = 10;
+        Channel<Integer> ch = new CopyOnWriteChannel<>();
+        AtomicInteger[] clients = new AtomicInteger[N];
+        for (int i = 0; i < N; i++) {
+            clients[i] = new AtomicInteger();
+            ch.link(clients[i]::set);
+        }
+
+        ch.send(123);
+        for (AtomicInteger client : clients) {
+            assertEquals(123, client.get());
+        }
+
+        ch.unlinkAll();
+        ch.send(456);
+        for (AtomicInteger client : clients) {
+            assertNotEquals(456, client.get());
+        }
+    }
+
+    @Test
+    public void links_made_during_a_send_take_effect_on_the_next_send() {
+        AtomicInteger late = new AtomicInteger();
+        Channel<Integer> ch = new CopyOnWriteChannel<>();
+        ch.link(n -> ch.link(late::set));
+        ch.send(1);
+        assertEquals(0, late.get());
+        ch.send(2);
+        assertEquals(2, late.get());
+    }
+
+    @Test(timeout = 1000)
+    public void listener_can_send_on_the_same_channel_from_another_thread()
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Channel<Integer> ch = new CopyOnWriteChannel<>();
+        ch.link(n -> {
+            if (n == 0) {
+                CountDownLatch sent = new CountDownLatch(1);
+                BG.execute(() -> {
+                    ch.send(1);
+                    sent.countDown();
+                });
+                try {
+                    sent.await();
+                } catch (InterruptedException e) {
+                    fail("interrupted");
+                }
+            } else {
+                done.countDown();
+            }
+        });
+        ch.send(0);
+        done.await();
+    }
+
+}
@@ -0,0 +1,128 @@
+package ph.codeia.signal;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.run.PassThrough;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class ParallelChannelTest {
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public static void tearDown() {
+        POOL.shutdown();
+    }
+
+    @Test(timeout = 1000)
+    public void straw_man() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        ParallelChannel<String> ch = new ParallelChannel<>();
+        ch.link(s -> {
+            thread.set(Thread.currentThread());
+            done.countDown();
+        }, POOL);
+        ch.send("foo");
+        done.await();
+        assertNotSame(Thread.currentThread(), thread.get());
+    }
+
+    @Test
+    public void plain_listeners_are_called_in_the_sending_thread() {
+        AtomicReference<String> msg = new AtomicReference<>();
+        ParallelChannel<String> ch = new ParallelChannel<>();
+        ch.link(msg::set);
+        ch.send("foo");
+        assertEquals("foo", msg.get());
+    }
+
+    @Test(timeout = 1000)
+    public void slow_listener_does_not_delay_the_others() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fast = new CountDownLatch(1);
+        ParallelChannel<Integer> ch = new ParallelChannel<>();
+        ch.link(n -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                fail("interrupted");
+            }
+        }, POOL);
+        ch.link(n -> fast.countDown(), POOL);
+        ch.send(1);
+        assertTrue(fast.await(500, TimeUnit.MILLISECONDS));
+        release.countDown();
+    }
+
+    @Test(timeout = 2000)
+    public void each_listener_receives_messages_in_order() throws InterruptedException {
+        int listeners = 4;
+        int messages = 2000;
+        CountDownLatch done = new CountDownLatch(listeners);
+        List<List<Integer>> received = new ArrayList<>();
+        ParallelChannel<Integer> ch = new ParallelChannel<>();
+        for (int i = 0; i < listeners; i++) {
+            List<Integer> log = new ArrayList<>();
+            received.add(log);
+            ch.link(n -> {
+                log.add(n);
+                if (n == messages - 1) {
+                    done.countDown();
+                }
+            }, POOL);
+        }
+        for (int i = 0; i < messages; i++) {
+            ch.send(i);
+        }
+        done.await();
+        for (List<Integer> log : received) {
+            assertEquals(messages, log.size());
+            for (int i = 0; i < messages; i++) {
+                assertEquals(i, (int) log.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void reentrant_send_is_delivered_after_the_current_message() {
+        List<Integer> received = new ArrayList<>();
+        ParallelChannel<Integer> ch = new ParallelChannel<>();
+        ch.link(n -> {
+            if (n == 0) {
+                ch.send(2);
+            }
+            received.add(n);
+        }, PassThrough.RUNNER);
+        ch.send(0);
+        assertEquals(Arrays.asList(0, 2), received);
+    }
+
+    @Test
+    public void unlinked_listener_gets_nothing() {
+        List<Integer> received = new ArrayList<>();
+        ParallelChannel<Integer> ch = new ParallelChannel<>();
+        Channel.Link link = ch.link(received::add, PassThrough.RUNNER);
+        ch.send(1);
+        link.unlink();
+        ch.send(2);
+        assertEquals(Collections.singletonList(1), received);
+    }
+
+}
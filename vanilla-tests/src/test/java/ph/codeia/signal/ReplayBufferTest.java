@@ -0,0 +1,85 @@
+package ph.codeia.signal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class ReplayBufferTest {
+
+    @Test
+    public void straw_man() {
+        List<String> client = new ArrayList<>();
+        Channel<String> ch = new ReplayBuffer<>(2);
+        ch.send("foo");
+        ch.send("bar");
+        ch.send("baz");
+        ch.link(client::add);
+        assertEquals(Arrays.asList("bar", "baz"), client);
+    }
+
+    @Test
+    public void replays_fewer_than_capacity_in_order() {
+        List<Integer> client = new ArrayList<>();
+        Channel<Integer> ch = new ReplayBuffer<>(8);
+        ch.send(1);
+        ch.send(2);
+        ch.send(3);
+        ch.link(client::add);
+        assertEquals(Arrays.asList(1, 2, 3), client);
+    }
+
+    @Test
+    public void late_joiner_keeps_receiving_new_messages() {
+        List<Integer> client = new ArrayList<>();
+        Channel<Integer> ch = new ReplayBuffer<>(2);
+        ch.send(1);
+        ch.send(2);
+        ch.send(3);
+        ch.link(client::add);
+        ch.send(4);
+        assertEquals(Arrays.asList(2, 3, 4), client);
+    }
+
+    @Test
+    public void expired_messages_are_not_replayed() throws InterruptedException {
+        List<String> client = new ArrayList<>();
+        Channel<String> ch = new ReplayBuffer<>(4, 50, TimeUnit.MILLISECONDS);
+        ch.send("old");
+        Thread.sleep(100);
+        ch.send("new");
+        ch.link(client::add);
+        assertEquals(Collections.singletonList("new"), client);
+    }
+
+    @Test
+    public void clear_forgets_history() {
+        List<String> client = new ArrayList<>();
+        ReplayBuffer<String> ch = new ReplayBuffer<>(4);
+        ch.send("foo");
+        ch.clear();
+        ch.link(client::add);
+        assertTrue(client.isEmpty());
+    }
+
+    @Test
+    public void does_not_replay_messages_sent_through_the_inner_channel() {
+        Channel<String> inner = new SimpleChannel<>();
+        Channel<String> ch = new ReplayBuffer<>(4, inner);
+        List<String> client = new ArrayList<>();
+        ch.send("xzcv");
+        inner.send("asdf");
+        ch.link(client::add);
+        assertEquals(Collections.singletonList("xzcv"), client);
+    }
+
+}
@@ -0,0 +1,81 @@
+package ph.codeia.signal;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.values.Do;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class WeakChannelTest {
+
+    // a field so the listener stays reachable however the JIT treats locals
+    private Do.Just<Integer> kept;
+
+    @Test
+    public void straw_man() {
+        AtomicReference<String> msg = new AtomicReference<>();
+        Channel<String> ch = new WeakChannel<>();
+        Channel.Link link = ch.link(msg::set);
+        ch.send("foo");
+        assertEquals("foo", msg.get());
+        assertNotNull(link);
+    }
+
+    @Test
+    public void stops_receiving_messages_when_unlinked() {
+        AtomicInteger msg1 = new AtomicInteger();
+        AtomicInteger msg2 = new AtomicInteger();
+        WeakChannel<Integer> ch = new WeakChannel<>();
+        Channel.Link l1 = ch.link(msg1::set);
+        Channel.Link l2 = ch.link(msg2::set);
+
+        ch.send(100);
+        l1.unlink();
+        ch.send(1024);
+
+        assertEquals(100, msg1.get());
+        assertEquals(1024, msg2.get());
+        assertEquals(1, ch.size());
+        l2.unlink();
+        assertEquals(0, ch.size());
+    }
+
+    @Test
+    public void unlink_all() {
+        AtomicInteger msg = new AtomicInteger();
+        WeakChannel<Integer> ch = new WeakChannel<>();
+        Channel.Link link = ch.link(msg::set);
+        ch.unlinkAll();
+        ch.send(1);
+        assertEquals(0, msg.get());
+        assertEquals(0, ch.size());
+        assertNotNull(link);
+    }
+
+    @Test(timeout = 5000)
+    public void forgotten_listeners_are_purged_on_send() throws InterruptedException {
+        AtomicInteger count = new AtomicInteger();
+        WeakChannel<Integer> ch = new WeakChannel<>();
+        kept = n -> count.incrementAndGet();
+        ch.link(kept);
+        for (int i = 0; i < 10; i++) {
+            ch.link(n -> count.incrementAndGet());
+        }
+        while (ch.size() > 1) {
+            System.gc();
+            Thread.sleep(10);
+            ch.send(0);
+        }
+        count.set(0);
+        ch.send(0);
+        assertEquals(1, count.get());
+    }
+
+}
@@ -0,0 +1,176 @@
+package ph.codeia.values;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class BoundedStoreTest {
+
+    @Test
+    public void straw_man() {
+        Store s = new BoundedStore(16);
+        s.put("a", "AAA");
+        s.put("b", 123);
+        s.put("c", true);
+        assertEquals("AAA", s.get("a", "not AAA"));
+        assertEquals(123, s.get("b", 0).intValue());
+        assertTrue(s.get("c", false));
+    }
+
+    @Test
+    public void softPut_does_not_overwrite() {
+        Store s = new BoundedStore(16);
+        s.softPut("a", () -> "orig");
+        s.softPut("a", () -> "changed");
+        assertEquals("orig", s.get("a", null));
+    }
+
+    @Test
+    public void hardGet_does_not_call_the_factory_when_present() {
+        Store s = new BoundedStore(16);
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("abc", s.hardGet("k", () -> {
+            calls.incrementAndGet();
+            return "abc";
+        }));
+        assertEquals("abc", s.hardGet("k", () -> {
+            calls.incrementAndGet();
+            return "def";
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void evicts_the_least_recently_used() {
+        BoundedStore s = new BoundedStore.Builder()
+                .withMaxSize(2)
+                .withConcurrency(1)
+                .build();
+        s.put("a", 1);
+        s.put("b", 2);
+        s.get("a", 0);
+        s.put("c", 3);
+        assertEquals(1, s.get("a", 0).intValue());
+        assertEquals(0, s.get("b", 0).intValue());
+        assertEquals(3, s.get("c", 0).intValue());
+        assertEquals(2, s.size());
+        assertEquals(1, s.stats().evictions);
+    }
+
+    @Test
+    public void never_holds_more_than_the_max_size() {
+        BoundedStore s = new BoundedStore(100);
+        for (int i = 0; i < 10_000; i++) {
+            s.put("key" + i, i);
+        }
+        assertTrue(s.size() <= 100);
+    }
+
+    @Test
+    public void evicts_by_weight() {
+        BoundedStore s = new BoundedStore.Builder()
+                .withMaxWeight(10, value -> ((String) value).length())
+                .withConcurrency(1)
+                .build();
+        s.put("a", "12345");
+        s.put("b", "1234");
+        s.put("c", "12");
+        assertNull(s.get("a", null));
+        assertEquals("1234", s.get("b", null));
+        assertEquals("12", s.get("c", null));
+    }
+
+    @Test
+    public void max_size_is_the_real_bound_at_the_default_concurrency() {
+        BoundedStore s = new BoundedStore(16);
+        for (int i = 0; i < 16; i++) {
+            s.put("key" + i, i);
+        }
+        assertEquals(16, s.size());
+        for (int i = 0; i < 16; i++) {
+            assertEquals(i, s.get("key" + i, -1).intValue());
+        }
+        s.put("one more", 16);
+        assertEquals(16, s.size());
+        assertEquals(1, s.stats().evictions);
+    }
+
+    @Test
+    public void evicts_the_least_recently_used_across_segments() {
+        BoundedStore s = new BoundedStore(4);
+        s.put("a", 1);
+        s.put("b", 2);
+        s.put("c", 3);
+        s.put("d", 4);
+        s.get("a", 0);
+        s.put("e", 5);
+        assertEquals(0, s.get("b", 0).intValue());
+        assertEquals(1, s.get("a", 0).intValue());
+        assertEquals(5, s.get("e", 0).intValue());
+        assertEquals(4, s.size());
+    }
+
+    @Test
+    public void max_weight_is_the_real_bound_at_the_default_concurrency() {
+        BoundedStore s = new BoundedStore.Builder()
+                .withMaxWeight(1000, value -> 100)
+                .build();
+        s.put("a", "AAA");
+        assertEquals("AAA", s.get("a", null));
+        for (int i = 0; i < 20; i++) {
+            s.put("key" + i, i);
+        }
+        assertEquals(10, s.size());
+    }
+
+    @Test
+    public void values_heavier_than_the_max_weight_are_not_kept() {
+        BoundedStore s = new BoundedStore.Builder()
+                .withMaxWeight(10, value -> ((String) value).length())
+                .build();
+        s.put("a", "12345");
+        s.put("b", "12345678901");
+        assertNull(s.get("b", null));
+        assertEquals("12345", s.get("a", null));
+    }
+
+    @Test
+    public void expires_after_ttl() throws InterruptedException {
+        Store s = new BoundedStore.Builder()
+                .withTtl(10, TimeUnit.MILLISECONDS)
+                .build();
+        s.put("a", "AAA");
+        assertEquals("AAA", s.get("a", null));
+        Thread.sleep(20);
+        assertNull(s.get("a", null));
+        assertEquals("BBB", s.hardGet("a", () -> "BBB"));
+    }
+
+    @Test
+    public void counts_hits_and_misses() {
+        BoundedStore s = new BoundedStore(16);
+        s.get("a", null);
+        s.put("a", "AAA");
+        s.get("a", null);
+        s.get("a", null);
+        BoundedStore.Stats stats = s.stats();
+        assertEquals(2, stats.hits);
+        assertEquals(1, stats.misses);
+    }
+
+    @Test
+    public void clear_removes_the_value() {
+        Store s = new BoundedStore(16);
+        s.put("a", "AAA");
+        s.clear("a");
+        assertEquals("none", s.get("a", "none"));
+    }
+
+}
@@ -0,0 +1,158 @@
+package ph.codeia.values;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ph.codeia.run.Seq;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class EitherCallbackTest {
+
+    private static final ExecutorService EXEC = Executors.newSingleThreadExecutor();
+
+    @AfterClass
+    public static void tearDownClass() {
+        EXEC.shutdown();
+    }
+
+    @Test
+    public void straw_man() throws Exception {
+        AtomicReference<Do.Try<String>> result = new AtomicReference<>();
+        Either<?, String> either = new Either<>();
+        either.onComplete(result::set);
+        assertNull(result.get());
+        either.pass("foo");
+        assertEquals("foo", result.get().get());
+    }
+
+    @Test
+    public void called_immediately_if_already_completed() throws Exception {
+        AtomicReference<Do.Try<String>> result = new AtomicReference<>();
+        Either.ok("foo").onComplete(result::set);
+        assertEquals("foo", result.get().get());
+    }
+
+    @Test
+    public void callbacks_are_called_in_registration_order() {
+        List<Integer> order = new ArrayList<>();
+        Either<?, String> either = new Either<>();
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            either.onComplete(t -> order.add(n));
+        }
+        either.pass("");
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+    }
+
+    @Test(timeout = 1000)
+    public void called_in_the_completing_thread() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        Either<?, String> either = new Either<>();
+        either.onComplete(t -> {
+            thread.set(Thread.currentThread());
+            done.countDown();
+        });
+        EXEC.execute(() -> either.pass("foo"));
+        done.await();
+        assertNotSame(Thread.currentThread(), thread.get());
+    }
+
+    @Test
+    public void map_transforms_the_value() throws Exception {
+        Either<?, Integer> either = new Either<>();
+        Either<Exception, String> mapped = either.map(n -> "#" + n);
+        either.pass(3);
+        assertEquals("#3", mapped.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void map_propagates_the_error() throws Exception {
+        Either.<Integer>error(new IllegalStateException())
+                .map(n -> n + 1)
+                .get();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void map_fails_when_the_function_throws() throws Exception {
+        Either.ok(1)
+                .map(n -> {
+                    throw new IllegalArgumentException();
+                })
+                .get();
+    }
+
+    @Test
+    public void flat_map_chains_computations() throws Exception {
+        Either<?, Integer> first = new Either<>();
+        Either<Exception, Integer> second = new Either<>();
+        Either<Exception, Integer> chained = first.flatMap(n -> second.map(m -> n + m));
+        first.pass(1);
+        assertFalse(chained.toFuture().isDone());
+        second.pass(2);
+        assertEquals(3, (int) chained.get());
+    }
+
+    @Test(timeout = 1000)
+    public void a_throwing_callback_does_not_stop_the_others() throws Exception {
+        Either<?, String> either = new Either<>();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch woke = new CountDownLatch(1);
+        EXEC.execute(() -> {
+            try {
+                blocked.countDown();
+                either.get();
+                woke.countDown();
+            } catch (Exception e) {
+                fail("unexpected " + e);
+            }
+        });
+        blocked.await();
+        Thread.sleep(10);
+        AtomicReference<String> second = new AtomicReference<>();
+        either.onComplete(t -> {
+            throw new IllegalStateException("boom");
+        });
+        either.onComplete(t -> second.set("called"));
+        try {
+            either.pass("foo");
+            fail("should be unreachable");
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        woke.await();
+        assertEquals("called", second.get());
+    }
+
+    @Test
+    public void plugs_into_seq() throws Exception {
+        Either<?, String> either = new Either<>();
+        AtomicReference<String> result = new AtomicReference<>();
+        Seq.tryOf(either)
+                .pipe((Do.Try<String> t, Do.Just<String> next) -> {
+                    try {
+                        next.got(t.get().toUpperCase());
+                    } catch (Exception e) {
+                        next.got(e.getMessage());
+                    }
+                })
+                .begin(result::set);
+        assertNull(result.get());
+        either.pass("foo");
+        assertEquals("FOO", result.get());
+    }
+
+}
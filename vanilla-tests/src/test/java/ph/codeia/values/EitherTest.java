@@ -139,4 +139,33 @@ public class EitherTest {
         mirror.get();
     }
 
-}
\ No newline at end of file
+    @Test(timeout = 1000)
+    public void wakes_every_waiting_thread() throws InterruptedException {
+        int n = 8;
+        Either<RuntimeException, String> value = new Either<>();
+        CountDownLatch started = new CountDownLatch(n);
+        CountDownLatch done = new CountDownLatch(n);
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        try {
+            for (int i = 0; i < n; i++) {
+                pool.execute(() -> {
+                    started.countDown();
+                    try {
+                        if ("foo".equals(value.get())) {
+                            done.countDown();
+                        }
+                    } catch (InterruptedException e) {
+                        fail("interrupted");
+                    }
+                });
+            }
+            started.await();
+            Thread.sleep(16);
+            value.pass("foo");
+            assertTrue(done.await(500, TimeUnit.MILLISECONDS));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -3,9 +3,12 @@ package ph.codeia.values;
 import org.junit.AfterClass;
 import org.junit.Test;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -76,4 +79,56 @@ public class EitherToFutureTest {
         e.toFuture().get(1, TimeUnit.NANOSECONDS);
     }
 
+    @Test
+    public void cancel_completes_the_future() {
+        Either<?, String> e = new Either<>();
+        Future<String> f = e.toFuture();
+        assertTrue(f.cancel(false));
+        assertTrue(f.isCancelled());
+        assertTrue(f.isDone());
+        assertFalse(f.cancel(false));
+        e.pass("too late");
+        try {
+            f.get();
+            fail("should be unreachable");
+        } catch (CancellationException | InterruptedException | ExecutionException ex) {
+            assertTrue(ex instanceof CancellationException);
+        }
+    }
+
+    @Test
+    public void cannot_cancel_a_completed_future() throws ExecutionException, InterruptedException {
+        Either<?, String> e = new Either<>();
+        e.pass("foo");
+        assertFalse(e.toFuture().cancel(true));
+        assertFalse(e.isCancelled());
+        assertEquals("foo", e.toFuture().get());
+    }
+
+    @Test(timeout = 1000)
+    public void cancel_wakes_up_waiting_threads() throws InterruptedException {
+        Either<?, String> e = new Either<>();
+        CountDownLatch woke = new CountDownLatch(1);
+        EXEC.execute(() -> {
+            try {
+                e.toFuture().get();
+            } catch (CancellationException ex) {
+                woke.countDown();
+            } catch (InterruptedException | ExecutionException ex) {
+                fail("unexpected " + ex);
+            }
+        });
+        Thread.sleep(10);
+        e.cancel();
+        woke.await();
+    }
+
+    @Test
+    public void cancellation_propagates_through_map() {
+        Either<Exception, String> e = new Either<>();
+        Either<Exception, Integer> mapped = e.map(String::length);
+        e.cancel();
+        assertTrue(mapped.isCancelled());
+    }
+
 }
@@ -2,6 +2,10 @@ package ph.codeia.values;
 
 import org.junit.Test;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
@@ -28,4 +32,65 @@ public class LazyTest {
         assertEquals(1, lazy.get().intValue());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void null_is_also_computed_once() {
+        AtomicInteger counter = new AtomicInteger();
+        Lazy<String> lazy = Lazy.of(() -> {
+            counter.incrementAndGet();
+            return null;
+        });
+        assertNull(lazy.get());
+        assertNull(lazy.get());
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void reset_recomputes_the_value() {
+        AtomicInteger counter = new AtomicInteger();
+        Lazy<Integer> lazy = Lazy.of(counter::incrementAndGet);
+        assertEquals(1, lazy.get().intValue());
+        lazy.reset();
+        assertEquals(2, lazy.get().intValue());
+        assertEquals(2, lazy.get().intValue());
+    }
+
+    @Test
+    public void expired_value_is_recomputed() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        Lazy<Integer> lazy = Lazy.expiring(20, TimeUnit.MILLISECONDS, counter::incrementAndGet);
+        assertEquals(1, lazy.get().intValue());
+        assertEquals(1, lazy.get().intValue());
+        Thread.sleep(40);
+        assertEquals(2, lazy.get().intValue());
+    }
+
+    @Test(timeout = 1000)
+    public void concurrent_first_calls_compute_once() throws InterruptedException {
+        int n = 8;
+        AtomicInteger counter = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(n);
+        Lazy<Integer> lazy = Lazy.of(counter::incrementAndGet);
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        try {
+            for (int i = 0; i < n; i++) {
+                pool.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        fail("interrupted");
+                    }
+                    if (lazy.get() == 1) {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            done.await();
+            assertEquals(1, counter.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
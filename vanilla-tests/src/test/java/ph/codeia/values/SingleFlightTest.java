@@ -0,0 +1,104 @@
+package ph.codeia.values;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is a part of the vanilla project.
+ */
+
+public class SingleFlightTest {
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public static void tearDown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void straw_man() {
+        Store s = new SingleFlight(new BoundedStore(16));
+        assertEquals("abc", s.hardGet("k", () -> "abc"));
+        assertEquals("abc", s.hardGet("k", () -> "def"));
+        assertEquals("abc", s.get("k", null));
+    }
+
+    @Test(timeout = 1000)
+    public void concurrent_misses_on_the_same_key_call_the_factory_once() throws Exception {
+        Store s = new SingleFlight(new BoundedStore(16));
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = POOL.submit(() -> s.hardGet("k", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                fail("interrupted");
+            }
+            return "first";
+        }));
+        started.await();
+        Future<String> second = POOL.submit(() -> s.hardGet("k", () -> {
+            calls.incrementAndGet();
+            return "second";
+        }));
+        Thread.sleep(16);
+        assertFalse(second.isDone());
+        release.countDown();
+        assertEquals("first", first.get());
+        assertEquals("first", second.get());
+        assertEquals(1, calls.get());
+    }
+
+    @Test(timeout = 1000)
+    public void misses_on_different_keys_run_in_parallel() throws Exception {
+        Store s = new SingleFlight(new BoundedStore(16));
+        CyclicBarrier both = new CyclicBarrier(2);
+        Future<String> a = POOL.submit(() -> s.hardGet("a", () -> {
+            try {
+                both.await(500, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                fail("serialized");
+            }
+            return "A";
+        }));
+        Future<String> b = POOL.submit(() -> s.hardGet("b", () -> {
+            try {
+                both.await(500, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                fail("serialized");
+            }
+            return "B";
+        }));
+        assertEquals("A", a.get());
+        assertEquals("B", b.get());
+    }
+
+    @Test
+    public void factory_errors_are_rethrown_and_not_stored() {
+        Store s = new SingleFlight(new BoundedStore(16));
+        try {
+            s.hardGet("k", () -> {
+                throw new IllegalStateException("nope");
+            });
+            fail("should be unreachable");
+        } catch (IllegalStateException e) {
+            assertEquals("nope", e.getMessage());
+        }
+        assertEquals("ok", s.hardGet("k", () -> "ok"));
+    }
+
+}
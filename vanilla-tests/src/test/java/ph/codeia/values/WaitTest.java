@@ -69,4 +69,21 @@ public class WaitTest {
         assertEquals("abc", value.get());
     }
 
+    @Test(timeout = 1000)
+    public void interrupt_returns_null_and_keeps_the_flag() throws InterruptedException {
+        Wait<String> value = new Wait<>();
+        AtomicBoolean interrupted = new AtomicBoolean(false);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread t = new Thread(() -> {
+            assertNull(value.get());
+            interrupted.set(Thread.currentThread().isInterrupted());
+            done.countDown();
+        });
+        t.start();
+        Thread.sleep(16);
+        t.interrupt();
+        done.await();
+        assertTrue(interrupted.get());
+    }
+
 }